@@ -0,0 +1,55 @@
+package kz.tim.benchmarks;
+
+import kz.tim.extractors.CellExtractor;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.row.cell.CellData;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding of the cells of a single row, see {@link CellExtractor#extractCells(Row)}.
+ * Range tombstones carry no cells, so that shape is left out.
+ *
+ * @author Timur Tibeyev.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CellExtractionBenchmark {
+    @Param({"SIMPLE", "COLLECTIONS", "UDT", "COUNTER"})
+    private UpdateShape shape;
+
+    private Row row;
+    private ExtractionPlan plan;
+
+    /**
+     * Takes the first row of the benchmarked shape.
+     */
+    @Setup
+    public void setUp() {
+        PartitionUpdate update = Fixtures.update(shape);
+        row = update.iterator().next();
+        plan = Fixtures.plan(update);
+    }
+
+    /**
+     * Extracts cells of the row.
+     *
+     * @return extracted cells.
+     */
+    @Benchmark
+    public List<CellData> extractCells() {
+        return new CellExtractor(plan).extractCells(row);
+    }
+}
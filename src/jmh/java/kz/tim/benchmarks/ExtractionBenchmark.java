@@ -0,0 +1,52 @@
+package kz.tim.benchmarks;
+
+import kz.tim.extractors.DataExtractor;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.PartitionData;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extraction of a whole partition update, see {@link DataExtractor#extract()}.
+ *
+ * @author Timur Tibeyev.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtractionBenchmark {
+    @Param
+    private UpdateShape shape;
+
+    private PartitionUpdate update;
+    private ExtractionPlan plan;
+
+    /**
+     * Builds partition update of the benchmarked shape.
+     */
+    @Setup
+    public void setUp() {
+        update = Fixtures.update(shape);
+        plan = Fixtures.plan(update);
+    }
+
+    /**
+     * Extracts partition keys, rows and range tombstone markers of the update with the
+     * extractor of the benchmark thread, as the trigger does.
+     *
+     * @return extracted partition update.
+     */
+    @Benchmark
+    public PartitionData extract() {
+        return DataExtractor.extract(update, plan);
+    }
+}
@@ -0,0 +1,213 @@
+package kz.tim.benchmarks;
+
+import kz.tim.config.TriggerConfig;
+import kz.tim.extractors.plan.ExtractionPlan;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.FieldIdentifier;
+import org.apache.cassandra.cql3.QueryProcessor;
+import org.apache.cassandra.cql3.statements.CFStatement;
+import org.apache.cassandra.cql3.statements.CreateTableStatement;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.LivenessInfo;
+import org.apache.cassandra.db.context.CounterContext;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.TupleType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.marshal.UserType;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.BTreeRow;
+import org.apache.cassandra.db.rows.BufferCell;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.schema.Types;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds synthetic partition updates of real table metadata, without a running node.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class Fixtures {
+    private static final String KEYSPACE = "bench";
+    private static final long TIMESTAMP = 1577836800000000L;
+    private static final int WIDE_ROWS = 1000;
+    private static final int ROWS = 10;
+    private static final int ELEMENTS = 10;
+
+    static {
+        DatabaseDescriptor.clientInitialization();
+    }
+
+    private static final UserType ADDRESS = new UserType(KEYSPACE, ByteBufferUtil.bytes("address"),
+            Arrays.asList(FieldIdentifier.forUnquoted("street"),
+                    FieldIdentifier.forUnquoted("city"), FieldIdentifier.forUnquoted("zip")),
+            Arrays.<AbstractType<?>>asList(UTF8Type.instance, UTF8Type.instance,
+                    Int32Type.instance),
+            true);
+
+    private static final CFMetaData SIMPLE_TABLE = table("CREATE TABLE simple ("
+            + "id int, ck int, name text, age int, score double, active boolean,"
+            + " created timestamp, PRIMARY KEY (id, ck))");
+    private static final CFMetaData COLLECTIONS_TABLE = table("CREATE TABLE collections ("
+            + "id int, ck int, tags set<text>, scores map<text, int>, events list<bigint>,"
+            + " PRIMARY KEY (id, ck))");
+    private static final CFMetaData UDT_TABLE = table("CREATE TABLE udt ("
+            + "id int, ck int, home address, work frozen<address>, PRIMARY KEY (id, ck))");
+    private static final CFMetaData COUNTER_TABLE = table("CREATE TABLE counters ("
+            + "id int, ck int, views counter, clicks counter, PRIMARY KEY (id, ck))");
+
+    private Fixtures() {
+    }
+
+    /**
+     * Builds partition update of the given shape.
+     *
+     * @param shape update shape.
+     * @return partition update.
+     */
+    public static PartitionUpdate update(UpdateShape shape) {
+        switch (shape) {
+            case SIMPLE:
+                return simple(1);
+            case WIDE:
+                return simple(WIDE_ROWS);
+            case COLLECTIONS:
+                return collections();
+            case UDT:
+                return userTypes();
+            case COUNTER:
+                return counters();
+            case RANGE_TOMBSTONES:
+                return rangeTombstones();
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Builds extraction plan of the updated table with the default trigger configuration.
+     *
+     * @param update partition update.
+     * @return extraction plan.
+     */
+    public static ExtractionPlan plan(PartitionUpdate update) {
+        return new ExtractionPlan(update.metadata(), null, TriggerConfig.defaults());
+    }
+
+    private static PartitionUpdate simple(int rows) {
+        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(SIMPLE_TABLE, 1)
+                .timestamp(TIMESTAMP);
+        for (int i = 0; i < rows; i++) {
+            builder.row(i)
+                    .add("name", "name-" + i)
+                    .add("age", i % 100)
+                    .add("score", i * 1.5)
+                    .add("active", i % 2 == 0)
+                    .add("created", new java.util.Date(TIMESTAMP / 1000));
+        }
+        return builder.build();
+    }
+
+    private static PartitionUpdate collections() {
+        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(COLLECTIONS_TABLE, 1)
+                .timestamp(TIMESTAMP);
+        for (int i = 0; i < ROWS; i++) {
+            Set<String> tags = new HashSet<>();
+            Map<String, Integer> scores = new HashMap<>();
+            List<Long> events = new ArrayList<>();
+            for (int j = 0; j < ELEMENTS; j++) {
+                tags.add("tag-" + j);
+                scores.put("score-" + j, j);
+                events.add((long) j);
+            }
+            builder.row(i).add("tags", tags).add("scores", scores).add("events", events);
+        }
+        return builder.build();
+    }
+
+    private static PartitionUpdate userTypes() {
+        ColumnDefinition home = UDT_TABLE.getColumnDefinition(ByteBufferUtil.bytes("home"));
+        ColumnDefinition work = UDT_TABLE.getColumnDefinition(ByteBufferUtil.bytes("work"));
+        PartitionUpdate update = new PartitionUpdate(UDT_TABLE, key(UDT_TABLE),
+                UDT_TABLE.partitionColumns(), ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Row.Builder row = newRow(i);
+            ByteBuffer[] fields = {
+                ByteBufferUtil.bytes("street " + i), ByteBufferUtil.bytes("city"),
+                ByteBufferUtil.bytes(10000 + i)
+            };
+            for (int j = 0; j < fields.length; j++) {
+                row.addCell(BufferCell.live(home, TIMESTAMP, fields[j],
+                        ADDRESS.cellPathForField(ADDRESS.fieldName(j))));
+            }
+            row.addCell(BufferCell.live(work, TIMESTAMP, TupleType.buildValue(fields)));
+            update.add(row.build());
+        }
+        return update;
+    }
+
+    private static PartitionUpdate counters() {
+        ColumnDefinition views = COUNTER_TABLE.getColumnDefinition(ByteBufferUtil.bytes("views"));
+        ColumnDefinition clicks = COUNTER_TABLE.getColumnDefinition(
+                ByteBufferUtil.bytes("clicks"));
+        PartitionUpdate update = new PartitionUpdate(COUNTER_TABLE, key(COUNTER_TABLE),
+                COUNTER_TABLE.partitionColumns(), ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Row.Builder row = newRow(i);
+            // Same "counter update" context as the one built for CQL increments.
+            row.addCell(BufferCell.live(views, TIMESTAMP,
+                    CounterContext.instance().createUpdate(1)));
+            row.addCell(BufferCell.live(clicks, TIMESTAMP,
+                    CounterContext.instance().createUpdate(i)));
+            update.add(row.build());
+        }
+        return update;
+    }
+
+    private static PartitionUpdate rangeTombstones() {
+        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(SIMPLE_TABLE, 1)
+                .timestamp(TIMESTAMP);
+        for (int i = 0; i < ROWS; i++) {
+            builder.addRangeTombstone().start(i * 10).end(i * 10 + 5);
+            builder.row(i * 10 + 7).add("name", "name-" + i);
+        }
+        return builder.build();
+    }
+
+    private static Row.Builder newRow(int clustering) {
+        Row.Builder row = BTreeRow.unsortedBuilder(FBUtilities.nowInSeconds());
+        row.newRow(Clustering.make(ByteBufferUtil.bytes(clustering)));
+        row.addPrimaryKeyLivenessInfo(LivenessInfo.create(TIMESTAMP, FBUtilities.nowInSeconds()));
+        return row;
+    }
+
+    private static DecoratedKey key(CFMetaData metadata) {
+        return metadata.decorateKey(ByteBufferUtil.bytes(1));
+    }
+
+    private static CFMetaData table(String cql) {
+        CFStatement statement = (CFStatement) QueryProcessor.parseStatement(cql);
+        statement.prepareKeyspace(KEYSPACE);
+        CreateTableStatement prepared = (CreateTableStatement)
+                ((CreateTableStatement.RawStatement) statement).prepare(Types.of(ADDRESS))
+                        .statement;
+        return prepared.metadataBuilder()
+                .withPartitioner(Murmur3Partitioner.instance)
+                .build()
+                .params(prepared.params());
+    }
+}
@@ -0,0 +1,94 @@
+package kz.tim.benchmarks;
+
+import kz.tim.extractors.DataExtractor;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.PartitionData;
+import kz.tim.models.event.Event;
+import kz.tim.models.event.EventType;
+import kz.tim.serializers.EventFormat;
+import kz.tim.serializers.EventSerializer;
+import kz.tim.serializers.binary.BinaryEventSerializer;
+import kz.tim.serializers.binary.SchemaRegistry;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization of an already extracted partition update as a single
+ * {@link EventType#PARTITION} event. {@link EventFormat#COLUMNAR} serializes row batches
+ * rather than events, so it isn't measured here.
+ *
+ * @author Timur Tibeyev.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark {
+    @Param
+    private UpdateShape shape;
+
+    @Param({"JSON", "BINARY"})
+    private EventFormat format;
+
+    private Path schemaRegistryPath;
+    private Serializer<Event> serializer;
+    private Event event;
+
+    /**
+     * Extracts partition update of the benchmarked shape and creates the serializer.
+     *
+     * @throws IOException if the schema registry file can't be created.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        PartitionUpdate update = Fixtures.update(shape);
+        ExtractionPlan plan = Fixtures.plan(update);
+        PartitionData partitionData = new DataExtractor(update, plan).extract();
+
+        event = new Event(plan.getKeyspaceName(), plan.getTableName(),
+                partitionData.getPartitionKeys());
+        event.setPlan(plan);
+        event.setEventType(EventType.PARTITION);
+        event.setDeleted(partitionData.isDeleted());
+        event.setRows(partitionData.getRows());
+        event.setRangeTombstoneMarkers(partitionData.getRangeTombstoneMarkers());
+
+        schemaRegistryPath = Files.createTempFile("schema-registry", ".json");
+        serializer = format == EventFormat.BINARY
+                ? new BinaryEventSerializer(new SchemaRegistry(schemaRegistryPath))
+                : new EventSerializer();
+    }
+
+    /**
+     * Removes the schema registry file.
+     *
+     * @throws IOException if the file can't be removed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(schemaRegistryPath);
+    }
+
+    /**
+     * Serializes the event.
+     *
+     * @return serialized event.
+     */
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize("benchmark", event);
+    }
+}
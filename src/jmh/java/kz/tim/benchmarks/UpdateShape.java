@@ -0,0 +1,38 @@
+package kz.tim.benchmarks;
+
+/**
+ * Kinds of synthetic partition updates built by {@link Fixtures}.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum UpdateShape {
+    /**
+     * Single row with a handful of simple columns.
+     */
+    SIMPLE,
+
+    /**
+     * Thousand rows of the simple table in one partition update.
+     */
+    WIDE,
+
+    /**
+     * Rows overwriting non-frozen set, map and list columns.
+     */
+    COLLECTIONS,
+
+    /**
+     * Rows with a non-frozen and a frozen user defined type.
+     */
+    UDT,
+
+    /**
+     * Rows of counter increments.
+     */
+    COUNTER,
+
+    /**
+     * Range deletions with a few rows in between.
+     */
+    RANGE_TOMBSTONES
+}
@@ -0,0 +1,463 @@
+package kz.tim;
+
+import kz.tim.batching.RowBatch;
+import kz.tim.batching.RowBatcher;
+import kz.tim.config.TableConfig;
+import kz.tim.config.TriggerConfig;
+import kz.tim.extractors.PartitionStream;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.metrics.TableMetrics;
+import kz.tim.models.PartitionData;
+import kz.tim.models.event.Event;
+import kz.tim.models.event.EventType;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
+import kz.tim.models.row.RowData;
+import kz.tim.serializers.EventFormat;
+import kz.tim.serializers.EventSerializer;
+import kz.tim.serializers.KeyFormat;
+import kz.tim.serializers.RecordKeys;
+import kz.tim.serializers.binary.BinaryEventSerializer;
+import kz.tim.serializers.binary.ColumnarBatchSerializer;
+import kz.tim.serializers.binary.SchemaRegistry;
+import kz.tim.sink.EventSink;
+import kz.tim.tracing.Trace;
+import org.apache.cassandra.dht.Token;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class responsible for turning partition updates into records and handing them to the
+ * sink. Records of every table are sent to the topic and with the producer profile configured
+ * for the table. Rows of the tables with columnar format are sent in batches, other records of
+ * such tables follow the batches: they are keyed by the table name and sent to the same
+ * partition.
+ *
+ * @author Timur Tibeyev.
+ */
+public class EventSender {
+    private final EventSink sink;
+    private final Serializer<Event> jsonSerializer;
+    private final Serializer<Event> binarySerializer;
+    private final Serializer<RowBatch> columnarSerializer;
+    private final RowBatcher batcher;
+    private static final String CHUNK_HEADER = "chunk";
+    private static final String CHUNKS_HEADER = "chunks";
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param config trigger configuration.
+     * @param sink destination of the records.
+     */
+    public EventSender(TriggerConfig config, EventSink sink) {
+        this(sink, new SchemaRegistry(config.getSchemaRegistryPath()));
+    }
+
+    /**
+     * Parametrized constructor, for senders sharing the schema registry.
+     *
+     * @param sink destination of the records.
+     * @param schemaRegistry registry of the binary and columnar formats.
+     */
+    public EventSender(EventSink sink, SchemaRegistry schemaRegistry) {
+        this.sink = sink;
+        jsonSerializer = new EventSerializer();
+        binarySerializer = new BinaryEventSerializer(schemaRegistry);
+        columnarSerializer = new ColumnarBatchSerializer(schemaRegistry);
+        batcher = new RowBatcher(this::sendBatch);
+    }
+
+    /**
+     * Sends extracted partition update: as a single partition event if the table aggregates
+     * updates, otherwise partition deletion, rows and range tombstone markers one by one.
+     *
+     * @param event event of the update, with the plan and partition keys set.
+     * @param partitionData extracted partition update.
+     */
+    public void sendPartitionUpdate(Event event, PartitionData partitionData) {
+        TableConfig tableConfig = event.getPlan().getTableConfig();
+        event.setDeletionTimestamp(partitionData.getDeletionTimestamp());
+        if (tableConfig.isAggregatePartitionUpdates() && !isColumnar(event.getPlan())) {
+            sendPartitionEvent(event, partitionData);
+            return;
+        }
+        if (partitionData.isDeleted()) {
+            sendDeletedPartitionEvent(event);
+        }
+        if (!partitionData.getRows().isEmpty()) {
+            sendRowsEvents(event, partitionData.getRows());
+        }
+        if (!partitionData.getRangeTombstoneMarkers().isEmpty()) {
+            sendRangeTombstoneMarkersEvents(event, partitionData.getRangeTombstoneMarkers());
+        }
+    }
+
+    /**
+     * Send message to Kafka, that contains information about modified rows and cells.
+     *
+     * @param event event.
+     */
+    public void sendRowsEvents(Event event, List<RowData> rows) {
+        if (isColumnar(event.getPlan())) {
+            Integer partition = partition(event);
+            if (event.getTrace() != null) {
+                event.getTrace().addBufferedRows(rows.size());
+            }
+            for (RowData rowData: rows) {
+                batcher.add(event, rowData, partition);
+            }
+            return;
+        }
+        byte[] partitionKey = rowPartitionKey(event);
+        for (RowData rowData: rows) {
+            sendRowEvent(event, rowData, partitionKey, null);
+        }
+    }
+
+    /**
+     * Send message to Kafka, that contains information about deletion slices.
+     *
+     * @param event event.
+     */
+    public void sendRangeTombstoneMarkersEvents(
+            Event event,
+            List<RangeTombstoneMarkerData> rangeTombstoneMarkers
+    ) {
+        byte[] recordKey = partitionRecordKey(event);
+        for (RangeTombstoneMarkerData rangeTombstoneMarkerData: rangeTombstoneMarkers) {
+            sendRangeTombstoneMarkerEvent(event, rangeTombstoneMarkerData, recordKey, null);
+        }
+    }
+
+    /**
+     * Returns stream sending partition deletion, rows and range tombstone markers of the
+     * partition update as soon as they are extracted, one record each. Records of the update
+     * which are not acknowledged yet are bounded by
+     * {@link TableConfig#getStreamMaxInFlightBytes()}.
+     *
+     * @param event event of the streamed update, partition keys are set when it starts.
+     * @return partition stream.
+     */
+    public PartitionStream streamEvents(Event event) {
+        InFlightBytes inFlight = new InFlightBytes(
+                event.getPlan().getTableConfig().getStreamMaxInFlightBytes());
+        return new PartitionStream() {
+            private byte[] rowPartitionKey;
+            private byte[] partitionKey;
+
+            @Override
+            public void start(PartitionData partitionData) {
+                event.setPartitionKeys(partitionData.getPartitionKeys());
+                rowPartitionKey = rowPartitionKey(event);
+                partitionKey = partitionRecordKey(event);
+                if (partitionData.isDeleted()) {
+                    event.setDeleted(true);
+                    event.setDeletionTimestamp(partitionData.getDeletionTimestamp());
+                    try {
+                        send(partitionKey, event, inFlight);
+                    } finally {
+                        event.setDeleted(false);
+                    }
+                }
+            }
+
+            @Override
+            public void row(RowData row) {
+                sendRowEvent(event, row, rowPartitionKey, inFlight);
+            }
+
+            @Override
+            public void rangeTombstoneMarker(RangeTombstoneMarkerData marker) {
+                sendRangeTombstoneMarkerEvent(event, marker, partitionKey, inFlight);
+            }
+        };
+    }
+
+    /**
+     * Send whole partition update as a single message keyed by partition keys.
+     * Updates with more than {@link TableConfig#getAggregateMaxItems()} rows and markers or
+     * larger than {@link TableConfig#getAggregateMaxBytes()} are split into several chunks,
+     * which carry {@code chunk} and {@code chunks} record headers. Only the first chunk
+     * carries partition deletion.
+     *
+     * @param event event.
+     * @param partitionData extracted partition update.
+     */
+    public void sendPartitionEvent(Event event, PartitionData partitionData) {
+        ExtractionPlan plan = event.getPlan();
+        TableConfig tableConfig = plan.getTableConfig();
+        event.setEventType(EventType.PARTITION);
+        event.setDeleted(partitionData.isDeleted());
+        byte[] recordKey = partitionRecordKey(event);
+        Integer partition = partition(event);
+
+        List<byte[]> chunks = new ArrayList<>();
+        List<RowData> rows = new ArrayList<>(partitionData.getRows());
+        List<RangeTombstoneMarkerData> markers =
+                new ArrayList<>(partitionData.getRangeTombstoneMarkers());
+        int itemCount = rows.size() + markers.size();
+        int from = 0;
+        do {
+            int to = Math.min(itemCount, from + tableConfig.getAggregateMaxItems());
+            addChunks(plan, event, rows, markers, from, to, chunks);
+            from = to;
+        } while (from < itemCount);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(tableConfig.getTopic(),
+                    partition, recordKey, chunks.get(i));
+            if (chunks.size() > 1) {
+                record.headers().add(new RecordHeader(CHUNK_HEADER, intBytes(i)));
+                record.headers().add(new RecordHeader(CHUNKS_HEADER, intBytes(chunks.size())));
+            }
+            dispatch(plan, keyHash(event), record, null, event.getTrace());
+        }
+    }
+
+    /**
+     * Send message to Kafka, that contains information about deleted partition. The deletion
+     * flag is cleared afterwards, so rows and markers sent with the same event don't carry it.
+     *
+     * @param event event.
+     */
+    public void sendDeletedPartitionEvent(Event event) {
+        event.setDeleted(true);
+        try {
+            send(partitionRecordKey(event), event, null);
+        } finally {
+            event.setDeleted(false);
+        }
+    }
+
+    private void sendRowEvent(Event event, RowData rowData, byte[] partitionKey,
+                              InFlightBytes inFlight) {
+        KeyFormat keyFormat = event.getPlan().getTableConfig().getKeyFormat();
+        event.setEventType(EventType.ROW);
+        event.setRow(rowData);
+        send(RecordKeys.rowKey(keyFormat, event, rowData, partitionKey), event, inFlight);
+    }
+
+    private void sendRangeTombstoneMarkerEvent(Event event, RangeTombstoneMarkerData marker,
+                                               byte[] recordKey, InFlightBytes inFlight) {
+        event.setEventType(EventType.RANGE_TOMBSTONE_MARKER);
+        event.setRangeTombstoneMarker(marker);
+        send(recordKey, event, inFlight);
+    }
+
+    /**
+     * Returns partition part of the row record keys, which is only reused by binary keys.
+     */
+    private byte[] rowPartitionKey(Event event) {
+        KeyFormat keyFormat = event.getPlan().getTableConfig().getKeyFormat();
+        return keyFormat == KeyFormat.BINARY ? RecordKeys.partitionKey(keyFormat, event) : null;
+    }
+
+    /**
+     * Serializes items {@code [from, to)} of the partition update, where rows go before
+     * range tombstone markers, halving the range while the result exceeds the size bound.
+     */
+    private void addChunks(ExtractionPlan plan, Event event, List<RowData> rows,
+                           List<RangeTombstoneMarkerData> markers, int from, int to,
+                           List<byte[]> chunks) {
+        int rowCount = rows.size();
+        event.setRows(rows.subList(Math.min(from, rowCount), Math.min(to, rowCount)));
+        event.setRangeTombstoneMarkers(markers.subList(
+                Math.max(from, rowCount) - rowCount, Math.max(to, rowCount) - rowCount));
+        boolean deleted = event.isDeleted();
+        event.setDeleted(deleted && chunks.isEmpty());
+        byte[] value = serialize(plan, event);
+        event.setDeleted(deleted);
+
+        if (value.length > plan.getTableConfig().getAggregateMaxBytes() && to - from > 1) {
+            int middle = from + (to - from) / 2;
+            addChunks(plan, event, rows, markers, from, middle, chunks);
+            addChunks(plan, event, rows, markers, middle, to, chunks);
+        } else {
+            chunks.add(value);
+        }
+        event.setRows(Collections.emptyList());
+        event.setRangeTombstoneMarkers(Collections.emptyList());
+    }
+
+    private byte[] intBytes(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+
+    private void send(byte[] key, Event value, InFlightBytes inFlight) {
+        ExtractionPlan plan = value.getPlan();
+        Integer partition = partition(value);
+        if (isColumnar(plan)) {
+            batcher.flush(plan, partition);
+            dispatch(plan, batchKeyHash(plan, partition), new ProducerRecord<>(
+                    plan.getTableConfig().getTopic(), partition, batchKey(plan),
+                    serialize(plan, value)), inFlight, value.getTrace());
+            return;
+        }
+        byte[] serializedValue = serialize(plan, value);
+        dispatch(plan, keyHash(value), new ProducerRecord<>(plan.getTableConfig().getTopic(),
+                partition, key, serializedValue), inFlight, value.getTrace());
+    }
+
+    private void sendBatch(RowBatch batch) {
+        ExtractionPlan plan = batch.getPlan();
+        TableConfig tableConfig = plan.getTableConfig();
+        long start = System.nanoTime();
+        byte[] value = columnarSerializer.serialize(tableConfig.getTopic(), batch);
+        plan.getMetrics().updateSerialization(System.nanoTime() - start, value.length);
+        dispatch(plan, batchKeyHash(plan, batch.getPartition()), new ProducerRecord<>(
+                tableConfig.getTopic(), batch.getPartition(), batchKey(plan), value), null, null);
+    }
+
+    /**
+     * Sends rows waiting in the batches of the columnar format.
+     */
+    public void flush() {
+        batcher.flushAll();
+    }
+
+    /**
+     * Stops the batching thread after sending rows waiting in the batches.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread.
+     */
+    public void shutdown() throws InterruptedException {
+        batcher.shutdown();
+    }
+
+    /**
+     * Returns number of rows waiting in the batches of the columnar format.
+     *
+     * @return batched rows.
+     */
+    public int batched() {
+        return batcher.buffered();
+    }
+
+    private boolean isColumnar(ExtractionPlan plan) {
+        return plan.getTableConfig().getEventFormat() == EventFormat.COLUMNAR;
+    }
+
+    /**
+     * Returns key of the records of a table with columnar format, {@code <keyspace>.<table>},
+     * so records of the table are kept in one partition unless it is chosen by token.
+     */
+    private static byte[] batchKey(ExtractionPlan plan) {
+        return (plan.getKeyspaceName() + "." + plan.getTableName())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int batchKeyHash(ExtractionPlan plan, Integer partition) {
+        return partition == null ? plan.getTableId().hashCode() : partition;
+    }
+
+    private byte[] partitionRecordKey(Event event) {
+        return RecordKeys.partitionKey(event.getPlan().getTableConfig().getKeyFormat(), event);
+    }
+
+    /**
+     * Returns Kafka partition of the token if the table is partitioned by token,
+     * otherwise the producer partitioner chooses it.
+     */
+    private Integer partition(Event event) {
+        TableConfig tableConfig = event.getPlan().getTableConfig();
+        if (!tableConfig.isTokenPartitioning()) {
+            return null;
+        }
+        Integer partitions = sink.partitionCount(tableConfig.getProducer(),
+                tableConfig.getTopic());
+        return partitions == null ? null
+                : partitionForToken(event.getDecoratedKey().getToken(), partitions);
+    }
+
+    /**
+     * Returns hash of the partition token, which picks the producer shard of the records.
+     */
+    private static int keyHash(Event event) {
+        return event.getDecoratedKey() == null ? 0 : event.getDecoratedKey().getToken().hashCode();
+    }
+
+    /**
+     * Splits the token ring into equal consecutive ranges, one per Kafka partition.
+     * Only {@code Murmur3Partitioner} tokens are mapped by range, other tokens are hashed.
+     */
+    private static int partitionForToken(Token token, int partitions) {
+        Object value = token.getTokenValue();
+        if (value instanceof Long) {
+            long position = (Long) value ^ Long.MIN_VALUE;
+            return (int) (((position >>> 32) * partitions) >>> 32);
+        }
+        return Math.floorMod(token.hashCode(), partitions);
+    }
+
+    private byte[] serialize(ExtractionPlan plan, Event event) {
+        TableConfig tableConfig = plan.getTableConfig();
+        long start = System.nanoTime();
+        byte[] value = valueSerializer(tableConfig).serialize(tableConfig.getTopic(), event);
+        long nanos = System.nanoTime() - start;
+        plan.getMetrics().updateSerialization(nanos, value.length);
+        if (event.getTrace() != null) {
+            event.getTrace().addRecord(nanos, value.length);
+        }
+        return value;
+    }
+
+    /**
+     * Hands the record to the sink, waiting for free space first if in-flight bytes of
+     * the partition update are bounded. Acknowledgement is counted by the trace if the
+     * record belongs to a traced update.
+     */
+    private void dispatch(ExtractionPlan plan, int keyHash,
+                          ProducerRecord<byte[], byte[]> record, InFlightBytes inFlight,
+                          Trace trace) {
+        String producerName = plan.getTableConfig().getProducer();
+        int size = record.value().length;
+        if (inFlight != null) {
+            inFlight.acquire(size);
+        }
+        try {
+            sink.send(producerName, keyHash, record,
+                    sendCallback(plan.getMetrics(), size, inFlight, trace));
+        } catch (RuntimeException e) {
+            if (inFlight != null) {
+                inFlight.release(size);
+            }
+            throw e;
+        }
+    }
+
+    private Callback sendCallback(TableMetrics metrics, int size, InFlightBytes inFlight,
+                                  Trace trace) {
+        long start = System.nanoTime();
+        return (metadata, exception) -> {
+            if (inFlight != null) {
+                inFlight.release(size);
+            }
+            if (exception != null) {
+                metrics.markSendFailure();
+                if (trace != null) {
+                    trace.onSent(System.nanoTime() - start, false);
+                }
+            } else
+            if (metadata != null) {
+                long nanos = System.nanoTime() - start;
+                metrics.updateSend(nanos, size);
+                if (trace != null) {
+                    trace.onSent(nanos, true);
+                }
+            }
+        };
+    }
+
+    private Serializer<Event> valueSerializer(TableConfig tableConfig) {
+        return tableConfig.getEventFormat() == EventFormat.JSON
+                ? jsonSerializer : binarySerializer;
+    }
+}
@@ -0,0 +1,48 @@
+package kz.tim;
+
+/**
+ * Bounds size of the records of a single partition update which are handed to the producer
+ * but not acknowledged yet. A record larger than the bound is let through alone.
+ *
+ * @author Timur Tibeyev.
+ */
+class InFlightBytes {
+    private final long maxBytes;
+    private long bytes;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param maxBytes maximum number of bytes in flight.
+     */
+    InFlightBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Waits until the record fits into the bound and reserves its size.
+     *
+     * @param size serialized record size.
+     */
+    synchronized void acquire(int size) {
+        try {
+            while (bytes > 0 && bytes + size > maxBytes) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for records in flight", e);
+        }
+        bytes += size;
+    }
+
+    /**
+     * Releases size of the acknowledged, failed or spilled record.
+     *
+     * @param size serialized record size.
+     */
+    synchronized void release(int size) {
+        bytes -= size;
+        notifyAll();
+    }
+}
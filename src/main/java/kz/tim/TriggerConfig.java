@@ -1,11 +0,0 @@
-package kz.tim;
-
-/**
- * Basic configurations of the trigger.
- *
- * @author Timur Tibeyev.
- */
-public class TriggerConfig {
-    public static final String TOPIC_NAME = "test-topic";
-    public static final String BOOTSTRAP_SERVERS = "kafka:9092";
-}
@@ -0,0 +1,330 @@
+package kz.tim;
+
+import kz.tim.coalescing.Coalescer;
+import kz.tim.config.ConfigWatcher;
+import kz.tim.config.TableConfig;
+import kz.tim.config.TriggerConfig;
+import kz.tim.extractors.DataExtractor;
+import kz.tim.extractors.ExtractionPool;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.extractors.plan.ExtractionPlanCache;
+import kz.tim.metrics.TableMetrics;
+import kz.tim.metrics.TriggerMetrics;
+import kz.tim.models.PartitionData;
+import kz.tim.models.event.Event;
+import kz.tim.pipeline.EventPipeline;
+import kz.tim.serializers.EventFormat;
+import kz.tim.shedding.LoadShedder;
+import kz.tim.shedding.SheddingTier;
+import kz.tim.sink.EventSink;
+import kz.tim.sink.EventSinks;
+import kz.tim.tracing.Trace;
+import kz.tim.tracing.Tracer;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Worker threads, sink and the rest of the long-lived state of the trigger. Cassandra may
+ * create several trigger instances, they share one runtime per process. A runtime started by
+ * trigger classes which were reloaded since is found over JMX and stopped before the new one
+ * starts, so the sink and the spill journal are never opened twice. It is stopped by a start
+ * thread, not by the write which created the runtime: updates are queued for the workers
+ * meanwhile, which wait for the start. The runtime is also stopped when the node shuts down.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TriggerRuntime implements TriggerRuntimeMBean {
+    public static final String MBEAN_NAME = "kz.tim:type=TriggerRuntime";
+    private static TriggerRuntime instance;
+
+    private final Logger logger = Logger.getLogger(TriggerRuntime.class);
+    private final ConfigWatcher configWatcher;
+    private final EventPipeline pipeline;
+    private final Thread starter;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final Thread shutdownHook;
+    // Set by the start thread, published to the workers by the started latch.
+    private boolean running;
+    private EventSink sink;
+    private EventSender sender;
+    private ExtractionPool extractionPool;
+    private Coalescer coalescer;
+    private LoadShedder shedder;
+    private TriggerMetrics metrics;
+    private Tracer tracer;
+    private volatile boolean stopped;
+
+    private TriggerRuntime() {
+        configWatcher = new ConfigWatcher(TriggerConfig.configPath());
+        TriggerConfig config = TriggerConfig.current();
+        pipeline = new EventPipeline(config.getPipelineThreads(),
+                config.getPipelineQueueCapacity(), config.getPipelineOverflowPolicy(),
+                this::processSafely);
+        shutdownHook = new Thread(this::shutdownSafely, "cassandra-trigger-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        starter = new Thread(this::start, "cassandra-trigger-start");
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    /**
+     * Returns runtime of the process, starting it on first use.
+     *
+     * @return trigger runtime.
+     */
+    public static synchronized TriggerRuntime instance() {
+        if (instance == null) {
+            instance = new TriggerRuntime();
+        }
+        return instance;
+    }
+
+    /**
+     * Hands the partition update off to the worker threads, updates are dropped and counted
+     * once the runtime is stopped.
+     *
+     * @param update partition update.
+     */
+    public void submit(Partition update) {
+        pipeline.submit(update);
+    }
+
+    /**
+     * Stops the components in the order data flows through them, so nothing accepted before
+     * is lost: workers, coalescing window, batches, extraction threads and the sink.
+     */
+    @Override
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+        }
+        logger.info("Stopping Cassandra to Kafka trigger");
+        configWatcher.shutdown();
+        if (Thread.currentThread() != starter) {
+            starter.join();
+        }
+        pipeline.shutdown();
+        if (running) {
+            coalescer.shutdown();
+            sender.shutdown();
+            extractionPool.shutdown();
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                logger.error("Failed to close sink", e);
+            }
+            metrics.release();
+            tracer.release();
+            unregisterMBean();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The process is shutting down already.
+            }
+        }
+        synchronized (TriggerRuntime.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        logger.info("Cassandra to Kafka trigger stopped");
+    }
+
+    /**
+     * Stops the runtime of the reloaded trigger classes and creates the components, workers
+     * drop the queued updates if the start fails.
+     */
+    private void start() {
+        try {
+            stopPrevious();
+            TriggerConfig config = TriggerConfig.current();
+            sink = EventSinks.create(config);
+            configWatcher.addListener(sink::applyConfig);
+            sender = new EventSender(config, sink);
+            coalescer = new Coalescer(sender::sendPartitionUpdate);
+            extractionPool = new ExtractionPool(config.getExtractionThreads());
+            shedder = new LoadShedder(() -> Math.max(pipeline.fillPercent(),
+                    Math.max(sink.getBufferUsedPercent(), sink.getSpillQueuePercent())));
+            metrics = new TriggerMetrics()
+                    .gauge("QueuedUpdates", pipeline::queued)
+                    .gauge("DroppedUpdates", pipeline::getDroppedUpdates)
+                    .gauge("CoalescedRows", coalescer::buffered)
+                    .gauge("BatchedRows", sender::batched)
+                    .gauge("ProducerBufferUsedBytes", sink::getBufferUsedBytes)
+                    .gauge("Load", shedder::getLoad)
+                    .gauge("SheddingTier", () -> shedder.getTier().name());
+            tracer = new Tracer(config.getTracingConfig().getBufferSize());
+            registerMBean();
+            running = true;
+            logger.info("Cassandra to Kafka trigger successfully initialized");
+        } catch (RuntimeException e) {
+            logger.error("Failed to start Cassandra to Kafka trigger", e);
+            if (sink != null) {
+                sink.close();
+            }
+        } finally {
+            started.countDown();
+        }
+        if (!running) {
+            // The next trigger instance starts a new runtime.
+            shutdownSafely();
+        }
+    }
+
+    /**
+     * Waits until the runtime is started.
+     *
+     * @return {@code false} if the start failed.
+     */
+    private boolean awaitStart() {
+        try {
+            started.await();
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void shutdownSafely() {
+        try {
+            shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Stopping trigger failed", e);
+        }
+    }
+
+    private void processSafely(Partition update) {
+        CFMetaData metadata = update.metadata();
+        TableMetrics tableMetrics = TableMetrics.forTable(metadata.ksName, metadata.cfName);
+        if (!awaitStart()) {
+            tableMetrics.markProcessingFailure();
+            return;
+        }
+        Trace trace = tracer.start(update);
+        long start = System.nanoTime();
+        try {
+            process(update, trace);
+            tableMetrics.updateProcessing(System.nanoTime() - start);
+        } catch (Exception e) {
+            tableMetrics.markProcessingFailure();
+            if (trace != null) {
+                trace.setError(e.toString());
+            }
+            logger.error("Processing partition update failed", e);
+        } finally {
+            if (trace != null) {
+                tracer.finish(trace, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Extracts partition update and sends its records, the trace is attached to the events
+     * sent right away, updates left to the coalescing window only count their rows.
+     */
+    private void process(Partition update, Trace trace) {
+        ExtractionPlan plan = ExtractionPlanCache.instance.get(update.metadata());
+        TableConfig tableConfig = plan.getTableConfig();
+        SheddingTier shedding = shedder.decide(tableConfig.getSheddingPriority());
+        if (trace != null) {
+            trace.setShedding(shedding);
+        }
+        if (shedding != SheddingTier.NONE) {
+            plan.getMetrics().markShed(shedding);
+            if (shedding != SheddingTier.KEYS_ONLY) {
+                return;
+            }
+        }
+        boolean keysOnly = shedding == SheddingTier.KEYS_ONLY;
+        if (tableConfig.isStreamPartitionUpdates() && tableConfig.getCoalesceWindowMillis() == 0
+                && !tableConfig.isAggregatePartitionUpdates()
+                && tableConfig.getEventFormat() != EventFormat.COLUMNAR) {
+            Event event = new Event(plan.getKeyspaceName(), plan.getTableName(), null);
+            event.setPlan(plan);
+            event.setDecoratedKey(update.partitionKey());
+            event.setKeysOnly(keysOnly);
+            event.setTrace(trace);
+            DataExtractor.stream(update, plan, keysOnly, sender.streamEvents(event));
+            return;
+        }
+        long start = System.nanoTime();
+        PartitionData partitionData = extractionPool.extract(update, plan, keysOnly);
+        long extractionNanos = System.nanoTime() - start;
+        plan.getMetrics().updateExtraction(extractionNanos);
+        Event event = new Event(plan.getKeyspaceName(), plan.getTableName(),
+                partitionData.getPartitionKeys());
+        event.setPlan(plan);
+        event.setDecoratedKey(update.partitionKey());
+        event.setKeysOnly(keysOnly);
+
+        if (trace != null) {
+            trace.setExtractionNanos(extractionNanos);
+        }
+
+        if (tableConfig.getCoalesceWindowMillis() > 0) {
+            if (trace != null) {
+                trace.addBufferedRows(partitionData.getRows().size());
+            }
+            coalescer.add(event, partitionData);
+        } else {
+            event.setTrace(trace);
+            sender.sendPartitionUpdate(event, partitionData);
+        }
+    }
+
+    /**
+     * Stops runtime left by trigger classes loaded before {@code nodetool reloadtriggers},
+     * it belongs to another class loader, so it is reached over JMX.
+     */
+    private void stopPrevious() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                logger.info("Stopping trigger runtime of the reloaded trigger classes");
+                server.invoke(name, "shutdown", null, null);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to stop previous trigger runtime", e);
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            logger.warn("Failed to register trigger runtime MBean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to unregister trigger runtime MBean", e);
+        }
+    }
+}
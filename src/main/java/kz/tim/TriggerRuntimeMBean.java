@@ -0,0 +1,18 @@
+package kz.tim;
+
+/**
+ * JMX view of the {@link TriggerRuntime}, also used to stop the runtime started by a trigger
+ * class loader which was replaced by {@code nodetool reloadtriggers}.
+ *
+ * @author Timur Tibeyev.
+ */
+public interface TriggerRuntimeMBean {
+
+    /**
+     * Stops the runtime: processes the queued partition updates, sends buffered rows, closes
+     * the sink and releases threads, metrics and MBeans. Later updates are dropped.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    void shutdown() throws InterruptedException;
+}
@@ -0,0 +1,139 @@
+package kz.tim.backfill;
+
+import kz.tim.config.TriggerConfig;
+import kz.tim.sink.EventSink;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Counts records which are not acknowledged yet, so that a token range is only checkpointed
+ * once its records are stored. Records are counted by the backfill thread which sends them,
+ * records sent by other threads, such as expired columnar batches, are counted together and
+ * awaited by every thread. Only records stored by the sink count as acknowledged: a record
+ * accepted for later delivery, such as a spilled one, fails the checkpoint like a failed
+ * record. The first failure fails all following checkpoints.
+ *
+ * @author Timur Tibeyev.
+ */
+class AcknowledgingSink implements EventSink {
+    private static final long AWAIT_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final EventSink sink;
+    private final ThreadLocal<AtomicInteger> owner = new ThreadLocal<>();
+    private final AtomicInteger background = new AtomicInteger();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    AcknowledgingSink(EventSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Counts records sent by the current thread in the given counter.
+     *
+     * @param outstanding counter of the thread, {@code null} to stop counting.
+     */
+    void attach(AtomicInteger outstanding) {
+        if (outstanding == null) {
+            owner.remove();
+        } else {
+            owner.set(outstanding);
+        }
+    }
+
+    /**
+     * Waits until the records counted by the given counter and the records sent by other
+     * threads are acknowledged.
+     *
+     * @param outstanding counter of the current thread.
+     * @throws IOException if any record failed.
+     */
+    void await(AtomicInteger outstanding) throws IOException {
+        while (outstanding.get() > 0 || background.get() > 0) {
+            checkFailure();
+            LockSupport.parkNanos(AWAIT_PARK_NANOS);
+        }
+        checkFailure();
+    }
+
+    long getRecords() {
+        return records.get();
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public void send(String producer, int keyHash, ProducerRecord<byte[], byte[]> record,
+                     Callback callback) {
+        AtomicInteger outstanding = owner.get() == null ? background : owner.get();
+        int size = record.value().length;
+        outstanding.incrementAndGet();
+        try {
+            sink.send(producer, keyHash, record, (metadata, exception) -> {
+                if (exception != null) {
+                    failure.compareAndSet(null, exception);
+                } else
+                if (metadata == null) {
+                    failure.compareAndSet(null,
+                            new IOException("Record was accepted for later delivery only"));
+                } else {
+                    records.incrementAndGet();
+                    bytes.addAndGet(size);
+                }
+                outstanding.decrementAndGet();
+                callback.onCompletion(metadata, exception);
+            });
+        } catch (RuntimeException e) {
+            outstanding.decrementAndGet();
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Integer partitionCount(String producer, String topic) {
+        return sink.partitionCount(producer, topic);
+    }
+
+    @Override
+    public long getBufferUsedBytes() {
+        return sink.getBufferUsedBytes();
+    }
+
+    @Override
+    public int getBufferUsedPercent() {
+        return sink.getBufferUsedPercent();
+    }
+
+    @Override
+    public int getSpillQueuePercent() {
+        return sink.getSpillQueuePercent();
+    }
+
+    @Override
+    public void applyConfig(TriggerConfig config) {
+        sink.applyConfig(config);
+    }
+
+    @Override
+    public void close() {
+        sink.close();
+    }
+
+    private void checkFailure() throws IOException {
+        Exception exception = failure.get();
+        if (exception != null) {
+            throw new IOException("Records were not sent", exception);
+        }
+    }
+}
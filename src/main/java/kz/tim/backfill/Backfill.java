@@ -0,0 +1,319 @@
+package kz.tim.backfill;
+
+import com.google.common.util.concurrent.RateLimiter;
+import kz.tim.EventSender;
+import kz.tim.config.ConfigWatcher;
+import kz.tim.config.JournalConfig;
+import kz.tim.config.TriggerConfig;
+import kz.tim.extractors.DataExtractor;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.extractors.plan.ExtractionPlanCache;
+import kz.tim.models.PartitionData;
+import kz.tim.models.event.Event;
+import kz.tim.serializers.binary.SchemaRegistry;
+import kz.tim.sink.EventSinks;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.partitions.ImmutableBTreePartition;
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterators;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterators;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.ISSTableScanner;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline tool sending existing data of a table as the trigger would have sent it, to bootstrap
+ * a topic. SSTables of the table are read from a local data directory, so no node has to run
+ * and the cluster isn't queried. The token ring is split into ranges backfilled in parallel;
+ * SSTables are merged per range, so every partition is extracted once, with the latest data,
+ * by the {@link DataExtractor} and sent with the table settings of the trigger configuration.
+ * Progress of every range is checkpointed once its records are acknowledged, an interrupted
+ * backfill resumes after the last checkpoint, so records are sent at least once. Every range
+ * has its own sender, so columnar batches never hold rows of other ranges.
+ *
+ * @author Timur Tibeyev.
+ */
+public class Backfill {
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+    private static final String DATA_SUFFIX = "-" + Component.DATA.name();
+    private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final UnfilteredPartitionIterators.MergeListener NO_LISTENER =
+            new UnfilteredPartitionIterators.MergeListener() {
+                @Override
+                public UnfilteredRowIterators.MergeListener getRowMergeListener(
+                        DecoratedKey partitionKey, List<UnfilteredRowIterator> versions) {
+                    return null;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+    private final Logger logger = Logger.getLogger(Backfill.class);
+    private final BackfillOptions options;
+    private final CFMetaData metadata;
+    private final List<SSTableReader> readers = new ArrayList<>();
+    private final List<Range<Token>> ranges;
+    private final Checkpoint checkpoint;
+    private final RateLimiter rateLimiter;
+    private final AcknowledgingSink sink;
+    private final SchemaRegistry schemaRegistry;
+    private final AtomicLong partitions = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    /**
+     * Opens SSTables of the table and the sink of the current trigger configuration.
+     *
+     * @param options command line options.
+     * @throws IOException if SSTables or the checkpoint can't be read.
+     */
+    public Backfill(BackfillOptions options) throws IOException {
+        this.options = options;
+        List<Descriptor> descriptors = descriptors(options.getDataDirectory());
+        if (descriptors.isEmpty()) {
+            throw new IllegalArgumentException("No SSTables in " + options.getDataDirectory());
+        }
+        metadata = TableSchema.metadata(descriptors, options.getPartitionKeyNames(),
+                options.getClusteringNames());
+        for (Descriptor descriptor: descriptors) {
+            readers.add(SSTableReader.open(descriptor, metadata));
+        }
+        ranges = split(metadata.partitioner, options.getSplits());
+        Path checkpointPath = options.getCheckpointPath() != null ? options.getCheckpointPath()
+                : Paths.get("backfill-" + metadata.ksName + "." + metadata.cfName + ".checkpoint");
+        checkpoint = Checkpoint.load(checkpointPath, metadata.partitioner, ranges.size());
+        rateLimiter = options.getMaxMegabytesPerSecond() > 0
+                ? RateLimiter.create((double) options.getMaxMegabytesPerSecond()
+                * BYTES_PER_MEGABYTE) : null;
+        TriggerConfig config = TriggerConfig.current();
+        // The journal directory belongs to the trigger of the node, records are awaited instead.
+        sink = new AcknowledgingSink(EventSinks.create(config, JournalConfig.DISABLED));
+        schemaRegistry = new SchemaRegistry(config.getSchemaRegistryPath());
+        logger.info("Backfilling " + metadata.ksName + "." + metadata.cfName + " from "
+                + readers.size() + " SSTables, " + checkpoint.doneCount() + " of "
+                + ranges.size() + " token ranges done before, checkpoint " + checkpointPath);
+    }
+
+    /**
+     * Runs the backfill, see {@link BackfillOptions#USAGE}.
+     *
+     * @param args command line arguments.
+     * @throws Exception if the backfill can't be started.
+     */
+    public static void main(String[] args) throws Exception {
+        BackfillOptions options;
+        try {
+            options = BackfillOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BackfillOptions.USAGE);
+            System.exit(1);
+            return;
+        }
+        DatabaseDescriptor.clientInitialization();
+        new ConfigWatcher(options.getConfigPath());
+        Backfill backfill;
+        try {
+            backfill = new Backfill(options);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.exit(backfill.run() ? 0 : 2);
+    }
+
+    /**
+     * Backfills token ranges which are not done yet and closes the sink.
+     *
+     * @return {@code true} if all ranges are done.
+     * @throws InterruptedException if interrupted while waiting for the ranges.
+     */
+    public boolean run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads(),
+                daemonThreads("cassandra-trigger-backfill-"));
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                daemonThreads("cassandra-trigger-backfill-progress-"));
+        reporter.scheduleWithFixedDelay(this::logProgress, PROGRESS_INTERVAL_SECONDS,
+                PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            if (!checkpoint.isDone(i)) {
+                int range = i;
+                futures.add(executor.submit(() -> {
+                    backfillRange(range);
+                    return null;
+                }));
+            }
+        }
+        boolean completed = true;
+        for (Future<?> future: futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.error("Backfill of a token range failed", e.getCause());
+                completed = false;
+            }
+        }
+        executor.shutdown();
+        reporter.shutdownNow();
+        sink.close();
+        for (SSTableReader reader: readers) {
+            reader.selfRef().release();
+        }
+        logProgress();
+        return completed;
+    }
+
+    /**
+     * Sends partitions of the range in token order, starting after the checkpointed token.
+     */
+    private void backfillRange(int index) throws IOException, InterruptedException {
+        Range<Token> range = ranges.get(index);
+        Token position = checkpoint.position(index);
+        if (position != null && position.equals(range.right)) {
+            checkpoint.complete(index);
+            return;
+        }
+        Range<Token> remaining = position == null ? range : new Range<>(position, range.right);
+        AtomicInteger outstanding = new AtomicInteger();
+        EventSender sender = new EventSender(sink, schemaRegistry);
+        sink.attach(outstanding);
+        try (UnfilteredPartitionIterator partitionIterator = scan(remaining)) {
+            Token last = null;
+            int sinceCheckpoint = 0;
+            while (partitionIterator.hasNext()) {
+                try (UnfilteredRowIterator partition = partitionIterator.next()) {
+                    send(sender, ImmutableBTreePartition.create(partition));
+                    last = partition.partitionKey().getToken();
+                }
+                if (++sinceCheckpoint == options.getCheckpointPartitions()) {
+                    sender.flush();
+                    sink.await(outstanding);
+                    checkpoint.update(index, last);
+                    sinceCheckpoint = 0;
+                }
+            }
+            sender.flush();
+            sink.await(outstanding);
+            checkpoint.complete(index);
+        } finally {
+            sender.shutdown();
+            sink.attach(null);
+        }
+    }
+
+    /**
+     * Returns partitions of the range merged from all SSTables.
+     */
+    private UnfilteredPartitionIterator scan(Range<Token> range) {
+        List<ISSTableScanner> scanners = new ArrayList<>(readers.size());
+        try {
+            for (SSTableReader reader: readers) {
+                scanners.add(reader.getScanner(range, rateLimiter));
+            }
+        } catch (RuntimeException e) {
+            for (ISSTableScanner scanner: scanners) {
+                scanner.close();
+            }
+            throw e;
+        }
+        return UnfilteredPartitionIterators.merge(scanners, FBUtilities.nowInSeconds(),
+                NO_LISTENER);
+    }
+
+    private void send(EventSender sender, Partition update) {
+        ExtractionPlan plan = ExtractionPlanCache.instance.get(update.metadata());
+        PartitionData partitionData = DataExtractor.extract(update, plan);
+        Event event = new Event(plan.getKeyspaceName(), plan.getTableName(),
+                partitionData.getPartitionKeys());
+        event.setPlan(plan);
+        event.setDecoratedKey(update.partitionKey());
+        sender.sendPartitionUpdate(event, partitionData);
+        partitions.incrementAndGet();
+        rows.addAndGet(partitionData.getRows().size());
+    }
+
+    private void logProgress() {
+        logger.info("Backfilled " + partitions.get() + " partitions, " + rows.get() + " rows, "
+                + sink.getRecords() + " records acknowledged (" + sink.getBytes() + " bytes), "
+                + checkpoint.doneCount() + " of " + ranges.size() + " token ranges done");
+    }
+
+    /**
+     * Splits the token ring into equal consecutive ranges, only the {@code Murmur3Partitioner}
+     * ring can be split.
+     */
+    private static List<Range<Token>> split(IPartitioner partitioner, int splits) {
+        Token minimum = partitioner.getMinimumToken();
+        if (splits == 1) {
+            return Collections.singletonList(new Range<>(minimum, minimum));
+        }
+        if (!(partitioner instanceof Murmur3Partitioner)) {
+            throw new IllegalArgumentException("Token ring of " + partitioner.getClass()
+                    .getSimpleName() + " can't be split, use --splits 1");
+        }
+        long step = Long.divideUnsigned(-1L, splits);
+        List<Range<Token>> result = new ArrayList<>(splits);
+        Token left = minimum;
+        for (int i = 1; i <= splits; i++) {
+            Token right = i == splits ? minimum
+                    : new Murmur3Partitioner.LongToken(Long.MIN_VALUE + i * step);
+            result.add(new Range<>(left, right));
+            left = right;
+        }
+        return result;
+    }
+
+    private static List<Descriptor> descriptors(Path directory) throws IOException {
+        List<Descriptor> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                "*" + DATA_SUFFIX)) {
+            for (Path path: stream) {
+                result.add(Descriptor.fromFilename(path.toString()));
+            }
+        }
+        Collections.sort(result, (left, right) ->
+                Integer.compare(left.generation, right.generation));
+        return result;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package kz.tim.backfill;
+
+import kz.tim.config.TriggerConfig;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command line options of the {@link Backfill} tool.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class BackfillOptions {
+    static final String USAGE = "Usage: java -cp cassandra-trigger.jar kz.tim.backfill.Backfill"
+            + " --data <table data directory> --partition-key <columns>"
+            + " [--clustering-key <columns>] [--config <file>] [--checkpoint <file>]"
+            + " [--threads <n>] [--splits <n>] [--max-mb-per-second <n>]"
+            + " [--checkpoint-partitions <n>]";
+
+    private Path dataDirectory;
+    private List<String> partitionKeyNames = Collections.emptyList();
+    private List<String> clusteringNames = Collections.emptyList();
+    private Path configPath = TriggerConfig.configPath();
+    private Path checkpointPath;
+    private int threads = 4;
+    private int splits = 256;
+    private int maxMegabytesPerSecond;
+    private int checkpointPartitions = 1000;
+
+    private BackfillOptions() {
+    }
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param args arguments as {@code --name value} pairs.
+     * @return options.
+     * @throws IllegalArgumentException if an argument is unknown, missing or invalid.
+     */
+    public static BackfillOptions parse(String[] args) {
+        BackfillOptions options = new BackfillOptions();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--data":
+                    options.dataDirectory = Paths.get(value);
+                    break;
+                case "--partition-key":
+                    options.partitionKeyNames = names(value);
+                    break;
+                case "--clustering-key":
+                    options.clusteringNames = names(value);
+                    break;
+                case "--config":
+                    options.configPath = Paths.get(value);
+                    break;
+                case "--checkpoint":
+                    options.checkpointPath = Paths.get(value);
+                    break;
+                case "--threads":
+                    options.threads = positive(args[i], value);
+                    break;
+                case "--splits":
+                    options.splits = positive(args[i], value);
+                    break;
+                case "--max-mb-per-second":
+                    options.maxMegabytesPerSecond = Integer.parseInt(value);
+                    break;
+                case "--checkpoint-partitions":
+                    options.checkpointPartitions = positive(args[i], value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (options.dataDirectory == null) {
+            throw new IllegalArgumentException("--data is required");
+        }
+        if (options.partitionKeyNames.isEmpty()) {
+            throw new IllegalArgumentException("--partition-key is required");
+        }
+        return options;
+    }
+
+    /**
+     * Returns table directory with the SSTables, {@code <data>/<keyspace>/<table>-<id>}.
+     *
+     * @return data directory.
+     */
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * Returns names of the partition key columns, which SSTables don't store.
+     *
+     * @return column names in the key order.
+     */
+    public List<String> getPartitionKeyNames() {
+        return partitionKeyNames;
+    }
+
+    /**
+     * Returns names of the clustering columns, which SSTables don't store.
+     *
+     * @return column names in the clustering order.
+     */
+    public List<String> getClusteringNames() {
+        return clusteringNames;
+    }
+
+    public Path getConfigPath() {
+        return configPath;
+    }
+
+    /**
+     * Returns file keeping progress of the token ranges.
+     *
+     * @return checkpoint file, {@code null} for the default one.
+     */
+    public Path getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns number of token ranges the ring is split into, ranges are backfilled
+     * and checkpointed independently.
+     *
+     * @return number of token ranges.
+     */
+    public int getSplits() {
+        return splits;
+    }
+
+    /**
+     * Returns bound of the SSTable read throughput of all threads.
+     *
+     * @return megabytes per second, {@code 0} if unbounded.
+     */
+    public int getMaxMegabytesPerSecond() {
+        return maxMegabytesPerSecond;
+    }
+
+    /**
+     * Returns number of partitions of a token range between its checkpoints.
+     *
+     * @return number of partitions.
+     */
+    public int getCheckpointPartitions() {
+        return checkpointPartitions;
+    }
+
+    private static List<String> names(String value) {
+        return Arrays.asList(value.split(","));
+    }
+
+    private static int positive(String name, String value) {
+        int result = Integer.parseInt(value);
+        if (result <= 0) {
+            throw new IllegalArgumentException(name + " must be positive, got " + value);
+        }
+        return result;
+    }
+}
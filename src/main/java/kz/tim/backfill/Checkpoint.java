@@ -0,0 +1,118 @@
+package kz.tim.backfill;
+
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Token;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Progress of the backfilled token ranges, kept in a text file so that an interrupted
+ * backfill resumes where it stopped. The file holds the number of ranges and a line per
+ * started range with its index and either the token of the last partition whose records
+ * were acknowledged or {@code done}. The file is replaced atomically on every change.
+ *
+ * @author Timur Tibeyev.
+ */
+class Checkpoint {
+    private static final String SPLITS = "splits";
+    private static final String DONE = "done";
+
+    private final Path path;
+    private final Token.TokenFactory tokenFactory;
+    private final int splits;
+    private final Map<Integer, String> progress = new TreeMap<>();
+
+    private Checkpoint(Path path, IPartitioner partitioner, int splits) {
+        this.path = path;
+        this.tokenFactory = partitioner.getTokenFactory();
+        this.splits = splits;
+    }
+
+    /**
+     * Reads checkpoint file if it exists.
+     *
+     * @param path checkpoint file.
+     * @param partitioner partitioner of the table.
+     * @param splits number of token ranges.
+     * @return checkpoint.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalStateException if the file was written for another number of ranges.
+     */
+    static Checkpoint load(Path path, IPartitioner partitioner, int splits) throws IOException {
+        Checkpoint checkpoint = new Checkpoint(path, partitioner, splits);
+        if (!Files.exists(path)) {
+            return checkpoint;
+        }
+        for (String line: Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split(" ", 2);
+            if (parts.length < 2) {
+                continue;
+            }
+            if (SPLITS.equals(parts[0])) {
+                if (Integer.parseInt(parts[1]) != splits) {
+                    throw new IllegalStateException("Checkpoint " + path + " was written for "
+                            + parts[1] + " token ranges, got " + splits);
+                }
+            } else {
+                checkpoint.progress.put(Integer.parseInt(parts[0]), parts[1]);
+            }
+        }
+        return checkpoint;
+    }
+
+    synchronized boolean isDone(int range) {
+        return DONE.equals(progress.get(range));
+    }
+
+    /**
+     * Returns token the range is resumed after.
+     *
+     * @param range range index.
+     * @return token of the last acknowledged partition or {@code null} if the range isn't
+     *         started.
+     */
+    synchronized Token position(int range) {
+        String token = progress.get(range);
+        return token == null || DONE.equals(token) ? null : tokenFactory.fromString(token);
+    }
+
+    synchronized int doneCount() {
+        int count = 0;
+        for (String value: progress.values()) {
+            if (DONE.equals(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    synchronized void update(int range, Token token) throws IOException {
+        progress.put(range, tokenFactory.toString(token));
+        write();
+    }
+
+    synchronized void complete(int range) throws IOException {
+        progress.put(range, DONE);
+        write();
+    }
+
+    private void write() throws IOException {
+        List<String> lines = new ArrayList<>(progress.size() + 1);
+        lines.add(SPLITS + " " + splits);
+        for (Map.Entry<Integer, String> entry: progress.entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
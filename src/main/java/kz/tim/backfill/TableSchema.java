@@ -0,0 +1,105 @@
+package kz.tim.backfill;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.SerializationHeader;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.CompositeType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.metadata.MetadataType;
+import org.apache.cassandra.utils.FBUtilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds table metadata from the serialization headers of the SSTables, so the tool needs
+ * neither a running node nor the schema. Headers carry types of all columns, including user
+ * types, and names of the static and regular columns; names of the key columns are given on
+ * the command line. Keyspace and table names and the table id are taken from the directory.
+ *
+ * @author Timur Tibeyev.
+ */
+final class TableSchema {
+    private static final Pattern TABLE_ID = Pattern.compile(
+            ".*-(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{12})");
+
+    private TableSchema() {
+    }
+
+    /**
+     * Builds metadata of the table of the SSTables, columns of all SSTables are merged.
+     *
+     * @param descriptors SSTables of the table.
+     * @param partitionKeyNames names of the partition key columns.
+     * @param clusteringNames names of the clustering columns.
+     * @return table metadata.
+     * @throws IOException if SSTable metadata can't be read.
+     * @throws IllegalArgumentException if the number of key names doesn't match the SSTables.
+     */
+    static CFMetaData metadata(List<Descriptor> descriptors, List<String> partitionKeyNames,
+                               List<String> clusteringNames) throws IOException {
+        SerializationHeader.Component header = null;
+        Map<ByteBuffer, AbstractType<?>> staticColumns = new LinkedHashMap<>();
+        Map<ByteBuffer, AbstractType<?>> regularColumns = new LinkedHashMap<>();
+        for (Descriptor descriptor: descriptors) {
+            header = (SerializationHeader.Component) descriptor.getMetadataSerializer()
+                    .deserialize(descriptor, MetadataType.HEADER);
+            staticColumns.putAll(header.getStaticColumns());
+            regularColumns.putAll(header.getRegularColumns());
+        }
+
+        List<AbstractType<?>> keyTypes = Collections.singletonList(header.getKeyType());
+        if (partitionKeyNames.size() > 1 && header.getKeyType() instanceof CompositeType) {
+            keyTypes = ((CompositeType) header.getKeyType()).types;
+        }
+        checkNames("--partition-key", partitionKeyNames, keyTypes.size());
+        checkNames("--clustering-key", clusteringNames, header.getClusteringTypes().size());
+
+        Descriptor first = descriptors.get(0);
+        IPartitioner partitioner = FBUtilities.newPartitioner(first);
+        CFMetaData.Builder builder = CFMetaData.Builder.create(first.ksname, first.cfname)
+                .withPartitioner(partitioner);
+        Matcher matcher = TABLE_ID.matcher(first.directory.getName());
+        if (matcher.matches()) {
+            builder.withId(UUID.fromString(String.join("-", matcher.group(1), matcher.group(2),
+                    matcher.group(3), matcher.group(4), matcher.group(5))));
+        }
+        for (int i = 0; i < keyTypes.size(); i++) {
+            builder.addPartitionKey(identifier(partitionKeyNames.get(i)), keyTypes.get(i));
+        }
+        for (int i = 0; i < clusteringNames.size(); i++) {
+            builder.addClusteringColumn(identifier(clusteringNames.get(i)),
+                    header.getClusteringTypes().get(i));
+        }
+        for (Map.Entry<ByteBuffer, AbstractType<?>> column: staticColumns.entrySet()) {
+            builder.addStaticColumn(identifier(UTF8Type.instance.getString(column.getKey())),
+                    column.getValue());
+        }
+        for (Map.Entry<ByteBuffer, AbstractType<?>> column: regularColumns.entrySet()) {
+            builder.addRegularColumn(identifier(UTF8Type.instance.getString(column.getKey())),
+                    column.getValue());
+        }
+        return builder.build();
+    }
+
+    private static ColumnIdentifier identifier(String name) {
+        return ColumnIdentifier.getInterned(name, true);
+    }
+
+    private static void checkNames(String option, List<String> names, int count) {
+        if (names.size() != count) {
+            throw new IllegalArgumentException(option + " expects " + count
+                    + " column names, got " + names);
+        }
+    }
+}
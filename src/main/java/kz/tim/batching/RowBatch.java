@@ -0,0 +1,86 @@
+package kz.tim.batching;
+
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.row.RowData;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a single table collected by {@link RowBatcher} to be sent as one record,
+ * together with partition keys of every row.
+ *
+ * @author Timur Tibeyev.
+ */
+public class RowBatch {
+    private final ExtractionPlan plan;
+    private final Integer partition;
+    private final long deadline;
+    private final List<Map<String, Object>> partitionKeys = new ArrayList<>();
+    private final List<RowData> rows = new ArrayList<>();
+    private final BitSet keysOnlyRows = new BitSet();
+
+    RowBatch(ExtractionPlan plan, Integer partition, long deadline) {
+        this.plan = plan;
+        this.partition = partition;
+        this.deadline = deadline;
+    }
+
+    void add(Map<String, Object> rowPartitionKeys, RowData row, boolean rowKeysOnly) {
+        partitionKeys.add(rowPartitionKeys);
+        rows.add(row);
+        if (rowKeysOnly) {
+            keysOnlyRows.set(rows.size() - 1);
+        }
+    }
+
+    public ExtractionPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Returns Kafka partition all rows of the batch are sent to.
+     *
+     * @return partition or {@code null} if the producer partitioner chooses it.
+     */
+    public Integer getPartition() {
+        return partition;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    public List<Map<String, Object>> getPartitionKeys() {
+        return partitionKeys;
+    }
+
+    public List<RowData> getRows() {
+        return rows;
+    }
+
+    /**
+     * Checks whether cells of some rows were shed under load.
+     *
+     * @return {@code true} if some rows carry primary keys only.
+     */
+    public boolean isKeysOnly() {
+        return !keysOnlyRows.isEmpty();
+    }
+
+    /**
+     * Checks whether cells of the row were shed under load.
+     *
+     * @param row row index in the batch.
+     * @return {@code true} if the row carries primary keys only.
+     */
+    public boolean isKeysOnly(int row) {
+        return keysOnlyRows.get(row);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,176 @@
+package kz.tim.batching;
+
+import kz.tim.config.TableConfig;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.event.Event;
+import kz.tim.models.row.RowData;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Collects rows of the tables with columnar format into micro-batches, one per table and
+ * Kafka partition. A batch is sent when it reaches {@link TableConfig#getBatchMaxRows()} rows,
+ * when it is older than {@link TableConfig#getBatchWindowMillis()} or when an event of the
+ * table which is not batched has to be sent after it. Batches of the same table and partition
+ * are sent in the order they were created.
+ *
+ * @author Timur Tibeyev.
+ */
+public class RowBatcher implements Runnable {
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int NO_PARTITION = -1;
+
+    private final Logger logger = Logger.getLogger(RowBatcher.class);
+    private final Consumer<RowBatch> sink;
+    private final ConcurrentMap<UUID, ConcurrentMap<Integer, Group>> tables =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger rows = new AtomicInteger();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Parametrized constructor, starts the thread sending expired batches.
+     *
+     * @param sink sends batches, called by one thread at a time for the same group.
+     */
+    public RowBatcher(Consumer<RowBatch> sink) {
+        this.sink = sink;
+        thread = new Thread(this, "cassandra-trigger-batcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds row to the batch of its table and partition.
+     *
+     * @param event event of the partition update carrying the plan and partition keys.
+     * @param row row update.
+     * @param partition Kafka partition of the row or {@code null}.
+     */
+    public void add(Event event, RowData row, Integer partition) {
+        ExtractionPlan plan = event.getPlan();
+        TableConfig tableConfig = plan.getTableConfig();
+        Group group = group(plan, partition);
+        synchronized (group) {
+            if (group.batch != null && group.batch.getPlan() != plan) {
+                // Rows of a batch share the schema, the table was altered meanwhile.
+                send(group);
+            }
+            if (group.batch == null) {
+                group.batch = new RowBatch(plan, partition, System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(tableConfig.getBatchWindowMillis()));
+            }
+            group.batch.add(event.getPartitionKeys(), row, event.isKeysOnly());
+            rows.incrementAndGet();
+            if (group.batch.size() >= tableConfig.getBatchMaxRows()) {
+                send(group);
+            }
+        }
+    }
+
+    /**
+     * Sends pending batch of the table and partition, so that an event sent after it
+     * is not overtaken.
+     *
+     * @param plan table plan.
+     * @param partition Kafka partition or {@code null}.
+     */
+    public void flush(ExtractionPlan plan, Integer partition) {
+        Group group = group(plan, partition);
+        synchronized (group) {
+            send(group);
+        }
+    }
+
+    /**
+     * Sends all pending batches.
+     */
+    public void flushAll() {
+        for (Map<Integer, Group> groups: tables.values()) {
+            for (Group group: groups.values()) {
+                synchronized (group) {
+                    send(group);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the thread after sending all pending batches.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread.
+     */
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        flushAll();
+    }
+
+    /**
+     * Returns number of rows waiting in the batches.
+     *
+     * @return batched rows.
+     */
+    public int buffered() {
+        return rows.get();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            long now = System.nanoTime();
+            for (Map<Integer, Group> groups: tables.values()) {
+                for (Group group: groups.values()) {
+                    RowBatch batch = group.batch;
+                    if (batch != null && batch.getDeadline() - now <= 0) {
+                        synchronized (group) {
+                            if (group.batch == batch) {
+                                send(group);
+                            }
+                        }
+                    }
+                }
+            }
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+        }
+    }
+
+    private Group group(ExtractionPlan plan, Integer partition) {
+        return tables.computeIfAbsent(plan.getTableId(), tableId -> new ConcurrentHashMap<>())
+                .computeIfAbsent(partition == null ? NO_PARTITION : partition,
+                    key -> new Group());
+    }
+
+    /**
+     * Sends pending batch of the group, the caller holds the group lock.
+     */
+    private void send(Group group) {
+        RowBatch batch = group.batch;
+        if (batch == null) {
+            return;
+        }
+        group.batch = null;
+        rows.addAndGet(-batch.size());
+        try {
+            sink.accept(batch);
+        } catch (Exception e) {
+            logger.error("Sending batch of " + batch.size() + " rows failed", e);
+        }
+    }
+
+    /**
+     * Pending batch of a single table and partition.
+     */
+    private static class Group {
+        private volatile RowBatch batch;
+    }
+}
@@ -0,0 +1,90 @@
+package kz.tim.coalescing;
+
+import kz.tim.models.event.Event;
+import kz.tim.models.row.RowData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a single partition buffered by the {@link Coalescer}, keyed by clustering keys.
+ *
+ * @author Timur Tibeyev.
+ */
+class CoalescedPartition {
+    private final Map<String, Object> partitionKeys;
+    private final long deadline;
+    private final Map<Map<String, Object>, RowData> rows = new LinkedHashMap<>();
+    private Event event;
+    private boolean keysOnly;
+
+    CoalescedPartition(Map<String, Object> partitionKeys, long deadline) {
+        this.partitionKeys = partitionKeys;
+        this.deadline = deadline;
+    }
+
+    Map<String, Object> getPartitionKeys() {
+        return partitionKeys;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns event of the latest update, carrying the latest extraction plan.
+     */
+    Event getEvent() {
+        return event;
+    }
+
+    void setEvent(Event event) {
+        this.event = event;
+        keysOnly |= event.isKeysOnly();
+    }
+
+    /**
+     * Returns whether cells of some merged update were shed, so merged cells may be incomplete.
+     */
+    boolean isKeysOnly() {
+        return keysOnly;
+    }
+
+    /**
+     * Returns whether all rows can be merged into the buffered ones.
+     */
+    boolean canMerge(List<RowData> updated) {
+        for (RowData row: updated) {
+            RowData buffered = rows.get(row.getClusteringKeys());
+            if (buffered != null && !RowMerger.canMerge(buffered, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges the row into the buffered one with the same clustering keys.
+     *
+     * @return {@code true} if there was no such row.
+     */
+    boolean add(RowData row) {
+        RowData buffered = rows.get(row.getClusteringKeys());
+        if (buffered == null) {
+            rows.put(row.getClusteringKeys(), row);
+            return true;
+        }
+        rows.put(row.getClusteringKeys(), RowMerger.merge(buffered, row));
+        return false;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    List<RowData> getRows() {
+        return new ArrayList<>(rows.values());
+    }
+}
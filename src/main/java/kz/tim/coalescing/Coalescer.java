@@ -0,0 +1,207 @@
+package kz.tim.coalescing;
+
+import kz.tim.config.TableConfig;
+import kz.tim.models.PartitionData;
+import kz.tim.models.event.Event;
+import kz.tim.models.row.RowData;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Buffers rows of the tables with a coalescing window and merges successive updates of the
+ * same primary key, see {@link RowMerger}. A partition is sent when its window expires or
+ * earlier, when the table buffers more rows than allowed. Partition deletions and range
+ * tombstones are not buffered: rows buffered before them are sent first, or discarded
+ * if the whole partition is deleted. Rows buffered before writes to a deleted row are sent
+ * first as well.
+ *
+ * @author Timur Tibeyev.
+ */
+public class Coalescer implements Runnable {
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int LOCK_STRIPES = 64;
+
+    private final Logger logger = Logger.getLogger(Coalescer.class);
+    private final BiConsumer<Event, PartitionData> sink;
+    private final ConcurrentMap<UUID, TableBuffer> tables = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Parametrized constructor, starts the thread sending expired partitions.
+     *
+     * @param sink sends coalesced partition updates.
+     */
+    public Coalescer(BiConsumer<Event, PartitionData> sink) {
+        this.sink = sink;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        thread = new Thread(this, "cassandra-trigger-coalescer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds partition update of a table with a coalescing window.
+     *
+     * @param event event carrying the extraction plan.
+     * @param partitionData extracted partition update.
+     */
+    public void add(Event event, PartitionData partitionData) {
+        TableConfig tableConfig = event.getPlan().getTableConfig();
+        TableBuffer buffer = tables.computeIfAbsent(event.getPlan().getTableId(),
+            tableId -> new TableBuffer());
+        Map<String, Object> partitionKeys = partitionData.getPartitionKeys();
+
+        synchronized (lock(partitionKeys)) {
+            if (partitionData.isDeleted() || !partitionData.getRangeTombstoneMarkers().isEmpty()) {
+                CoalescedPartition pending = buffer.partitions.remove(partitionKeys);
+                if (pending != null) {
+                    buffer.rows.addAndGet(-pending.size());
+                    if (!partitionData.isDeleted()) {
+                        send(pending);
+                    }
+                }
+                PartitionData deletions = new PartitionData();
+                deletions.setPartitionKeys(partitionKeys);
+                deletions.setDeleted(partitionData.isDeleted());
+                deletions.setDeletionTimestamp(partitionData.getDeletionTimestamp());
+                deletions.setRangeTombstoneMarkers(partitionData.getRangeTombstoneMarkers());
+                sink.accept(event, deletions);
+            }
+            if (!partitionData.getRows().isEmpty()) {
+                CoalescedPartition partition = buffer.partitions.get(partitionKeys);
+                if (partition != null && !partition.canMerge(partitionData.getRows())) {
+                    buffer.partitions.remove(partitionKeys);
+                    buffer.rows.addAndGet(-partition.size());
+                    send(partition);
+                    partition = null;
+                }
+                if (partition == null) {
+                    partition = new CoalescedPartition(partitionKeys, System.nanoTime()
+                            + TimeUnit.MILLISECONDS.toNanos(tableConfig.getCoalesceWindowMillis()));
+                    buffer.partitions.put(partitionKeys, partition);
+                    buffer.deadlines.add(partition);
+                }
+                partition.setEvent(event);
+                for (RowData row: partitionData.getRows()) {
+                    if (partition.add(row)) {
+                        buffer.rows.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        while (buffer.rows.get() > tableConfig.getCoalesceMaxKeys()) {
+            CoalescedPartition oldest = buffer.deadlines.poll();
+            if (oldest == null) {
+                break;
+            }
+            flush(buffer, oldest);
+        }
+    }
+
+    /**
+     * Sends all buffered partitions.
+     */
+    public void flushAll() {
+        for (TableBuffer buffer: tables.values()) {
+            CoalescedPartition partition;
+            while ((partition = buffer.deadlines.poll()) != null) {
+                flush(buffer, partition);
+            }
+        }
+    }
+
+    /**
+     * Stops the thread after sending all buffered partitions.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread.
+     */
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        flushAll();
+    }
+
+    /**
+     * Returns number of rows waiting for their window to expire.
+     *
+     * @return buffered rows.
+     */
+    public int buffered() {
+        int buffered = 0;
+        for (TableBuffer buffer: tables.values()) {
+            buffered += buffer.rows.get();
+        }
+        return buffered;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            long now = System.nanoTime();
+            for (TableBuffer buffer: tables.values()) {
+                CoalescedPartition partition;
+                while ((partition = buffer.deadlines.peek()) != null
+                        && partition.getDeadline() - now <= 0) {
+                    buffer.deadlines.poll();
+                    flush(buffer, partition);
+                }
+            }
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+        }
+    }
+
+    /**
+     * Sends the partition unless it was already sent or discarded.
+     */
+    private void flush(TableBuffer buffer, CoalescedPartition partition) {
+        synchronized (lock(partition.getPartitionKeys())) {
+            if (buffer.partitions.remove(partition.getPartitionKeys(), partition)) {
+                buffer.rows.addAndGet(-partition.size());
+                send(partition);
+            }
+        }
+    }
+
+    private void send(CoalescedPartition partition) {
+        PartitionData partitionData = new PartitionData();
+        partitionData.setPartitionKeys(partition.getPartitionKeys());
+        partitionData.setRows(partition.getRows());
+        Event event = partition.getEvent();
+        event.setKeysOnly(partition.isKeysOnly());
+        try {
+            sink.accept(event, partitionData);
+        } catch (Exception e) {
+            logger.error("Sending coalesced partition update failed", e);
+        }
+    }
+
+    private Object lock(Map<String, Object> partitionKeys) {
+        return locks[Math.floorMod(partitionKeys.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Buffered partitions of a single table, {@code deadlines} keeps them in creation order.
+     */
+    private static class TableBuffer {
+        private final ConcurrentMap<Map<String, Object>, CoalescedPartition> partitions =
+                new ConcurrentHashMap<>();
+        private final Queue<CoalescedPartition> deadlines = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger rows = new AtomicInteger();
+    }
+}
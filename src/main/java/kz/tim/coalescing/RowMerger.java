@@ -0,0 +1,171 @@
+package kz.tim.coalescing;
+
+import kz.tim.models.row.RowAction;
+import kz.tim.models.row.RowData;
+import kz.tim.models.row.cell.CellData;
+import kz.tim.models.row.cell.CollectionDelta;
+import kz.tim.models.row.cell.LazyValue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges successive updates of the same row. Later cells overwrite earlier ones and deletions
+ * win: a deleted row or cell drops everything written before it. A row deletion followed by
+ * writes can't be merged, see {@link #canMerge(RowData, RowData)}.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class RowMerger {
+
+    private RowMerger() {
+    }
+
+    /**
+     * Returns whether the later update can be merged into the earlier one. Writes after a row
+     * deletion can't: the merged row would be a deletion carrying live cells, so the deletion
+     * has to be sent first.
+     *
+     * @param earlier earlier update.
+     * @param later later update.
+     * @return {@code false} if the earlier update deletes the row and the later one doesn't.
+     */
+    public static boolean canMerge(RowData earlier, RowData later) {
+        return earlier.getAction() != RowAction.DELETE || later.getAction() == RowAction.DELETE;
+    }
+
+    /**
+     * Merges later update of the row into the earlier one, see
+     * {@link #canMerge(RowData, RowData)}.
+     *
+     * @param earlier earlier update, modified in place.
+     * @param later later update.
+     * @return merged row.
+     */
+    public static RowData merge(RowData earlier, RowData later) {
+        if (later.getAction() == RowAction.DELETE) {
+            return later;
+        }
+        if (!canMerge(earlier, later)) {
+            throw new IllegalArgumentException("Writes can't be merged into a row deletion");
+        }
+        RowAction action;
+        if (earlier.getAction() == RowAction.INSERT || later.getAction() == RowAction.INSERT) {
+            action = RowAction.INSERT;
+        } else {
+            action = RowAction.UPDATE;
+        }
+
+        Map<String, CellData> cells = new LinkedHashMap<>();
+        for (CellData cell: earlier.getAffectedCells()) {
+            cells.put(cell.getName(), cell);
+        }
+        for (CellData cell: later.getAffectedCells()) {
+            cells.merge(cell.getName(), cell, RowMerger::mergeCell);
+        }
+        earlier.setAction(action);
+        earlier.setTimestamp(Math.max(earlier.getTimestamp(), later.getTimestamp()));
+        if (later.getTtl() > 0) {
+            earlier.setTtl(later.getTtl());
+        }
+        earlier.setAffectedCells(new ArrayList<>(cells.values()));
+        return earlier;
+    }
+
+    private static CellData mergeCell(CellData earlier, CellData later) {
+        if (later.isDeleted() || earlier.getType() != later.getType()) {
+            return later;
+        }
+        switch (later.getType()) {
+            case COUNTER:
+                return mergeCounter(earlier, later);
+            case UDT:
+            case LIST:
+            case SET:
+            case MAP:
+                return later.getColumn() != null && !later.getColumn().getDefinition().isComplex()
+                        ? later : mergeComplex(earlier, later);
+            default:
+                return later;
+        }
+    }
+
+    /**
+     * Counter cells carry increments, so they are summed up.
+     */
+    private static CellData mergeCounter(CellData earlier, CellData later) {
+        Object earlierValue = LazyValue.decode(earlier.getValue());
+        Object laterValue = LazyValue.decode(later.getValue());
+        if (earlierValue instanceof Long && laterValue instanceof Long) {
+            later.setValue((Long) earlierValue + (Long) laterValue);
+        }
+        return later;
+    }
+
+    /**
+     * Non-frozen collections and user types carry only the changed elements, so the changes
+     * are accumulated. Whole column deletion of the earlier update is kept together with the
+     * elements written after it.
+     */
+    private static CellData mergeComplex(CellData earlier, CellData later) {
+        CellData merged = new CellData();
+        merged.setName(later.getName());
+        merged.setColumn(later.getColumn());
+        merged.setType(later.getType());
+        merged.setDeleted(earlier.isDeleted());
+        merged.setTimestamp(Math.max(earlier.getTimestamp(), later.getTimestamp()));
+        merged.setTtl(Math.max(earlier.getTtl(), later.getTtl()));
+        Object laterValue = CollectionDelta.toCollection(later.getValue());
+        Object laterDeletedItems = CollectionDelta.toCollection(later.getDeletedItems());
+        merged.setValue(mergeValues(CollectionDelta.toCollection(earlier.getValue()),
+                laterValue, laterDeletedItems));
+        merged.setDeletedItems(mergeValues(
+                CollectionDelta.toCollection(earlier.getDeletedItems()), laterDeletedItems,
+                laterValue));
+        return merged;
+    }
+
+    /**
+     * Adds later elements to the earlier ones, removing elements of {@code removed}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object mergeValues(Object earlier, Object later, Object removed) {
+        if (earlier == null) {
+            return later;
+        }
+        if (later == null && removed == null) {
+            return earlier;
+        }
+        if (earlier instanceof Map) {
+            Map<Object, Object> result = new LinkedHashMap<>((Map<Object, Object>) earlier);
+            if (removed instanceof Map) {
+                result.keySet().removeAll(((Map<Object, Object>) removed).keySet());
+            }
+            if (later instanceof Map) {
+                result.putAll((Map<Object, Object>) later);
+            }
+            return result;
+        }
+        if (earlier instanceof Set) {
+            Set<Object> result = new LinkedHashSet<>((Set<Object>) earlier);
+            if (removed instanceof Collection) {
+                result.removeAll((Collection<Object>) removed);
+            }
+            if (later instanceof Collection) {
+                result.addAll((Collection<Object>) later);
+            }
+            return result;
+        }
+        if (earlier instanceof List && later instanceof List) {
+            List<Object> result = new ArrayList<>((List<Object>) earlier);
+            result.addAll((List<Object>) later);
+            return result;
+        }
+        return later == null ? earlier : later;
+    }
+}
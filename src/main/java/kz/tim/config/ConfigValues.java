@@ -0,0 +1,113 @@
+package kz.tim.config;
+
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed access to the values of a parsed yaml section.
+ *
+ * @author Timur Tibeyev.
+ */
+final class ConfigValues {
+
+    private ConfigValues() {
+    }
+
+    static String getString(Map<String, Object> section, String key, String defaultValue) {
+        Object value = section.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    static int getInt(Map<String, Object> section, String key, int defaultValue) {
+        Object value = section.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException("Invalid integer value of " + key + ": " + value);
+        }
+    }
+
+    static boolean getBoolean(Map<String, Object> section, String key, boolean defaultValue) {
+        Object value = section.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return Boolean.parseBoolean(value.toString().trim());
+    }
+
+    static <T extends Enum<T>> T getEnum(Map<String, Object> section, String key,
+                                         Class<T> enumClass, T defaultValue) {
+        Object value = section.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(enumClass, value.toString().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException("Invalid value of " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Returns list value, a single scalar is treated as a list of one element.
+     */
+    static Set<String> getStringSet(Map<String, Object> section, String key,
+                                    Set<String> defaultValue) {
+        Object value = section.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        Set<String> result = new HashSet<>();
+        if (value instanceof Collection) {
+            for (Object item: (Collection<?>) value) {
+                result.add(String.valueOf(item));
+            }
+        } else {
+            result.add(value.toString());
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Returns nested section, keys of the section are converted to strings.
+     */
+    static Map<String, Object> getSection(Map<String, Object> section, String key) {
+        return asSection(key, section.get(key));
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> asSection(String key, Object value) {
+        if (value == null) {
+            return Collections.emptyMap();
+        }
+        if (!(value instanceof Map)) {
+            throw new ConfigurationException("Section " + key + " must be a mapping");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<Object, Object> entry: ((Map<Object, Object>) value).entrySet()) {
+            result.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+
+    static void checkPositive(String key, int value) {
+        if (value <= 0) {
+            throw new ConfigurationException(key + " must be positive, got " + value);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package kz.tim.config;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Loads the configuration file and re-reads it whenever its modification time changes,
+ * so topics, producer profiles and table settings may be changed without a node restart.
+ * Invalid files are reported and the previous configuration stays in effect.
+ *
+ * @author Timur Tibeyev.
+ */
+public class ConfigWatcher {
+    private static final FileTime MISSING = FileTime.fromMillis(0);
+
+    private Logger logger = Logger.getLogger(ConfigWatcher.class);
+    private final Path path;
+    private final List<Consumer<TriggerConfig>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor;
+    private FileTime lastModified;
+
+    /**
+     * Loads the configuration file, which becomes {@link TriggerConfig#current()}.
+     *
+     * @param path configuration file.
+     * @throws org.apache.cassandra.exceptions.ConfigurationException if the file is invalid.
+     */
+    public ConfigWatcher(Path path) {
+        this.path = path;
+        lastModified = lastModified();
+        TriggerConfig config = TriggerConfig.load(path);
+        TriggerConfig.setCurrent(config);
+        logger.info("Trigger configuration loaded from " + path.toAbsolutePath());
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cassandra-trigger-config");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = config.getReloadIntervalSeconds();
+        if (interval > 0) {
+            executor.scheduleWithFixedDelay(this::reloadIfModified, interval, interval,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Registers listener called with every reloaded configuration.
+     *
+     * @param listener listener.
+     */
+    public void addListener(Consumer<TriggerConfig> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops watching the configuration file.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void reloadIfModified() {
+        FileTime modified = lastModified();
+        if (modified.equals(lastModified)) {
+            return;
+        }
+        lastModified = modified;
+        TriggerConfig config;
+        try {
+            config = TriggerConfig.load(path);
+        } catch (RuntimeException e) {
+            logger.error("Trigger configuration " + path.toAbsolutePath()
+                    + " is invalid, keeping the previous one", e);
+            return;
+        }
+        TriggerConfig.setCurrent(config);
+        logger.info("Trigger configuration reloaded from " + path.toAbsolutePath());
+        for (Consumer<TriggerConfig> listener: listeners) {
+            try {
+                listener.accept(config);
+            } catch (RuntimeException e) {
+                logger.error("Applying reloaded trigger configuration failed", e);
+            }
+        }
+    }
+
+    private FileTime lastModified() {
+        try {
+            return Files.exists(path) ? Files.getLastModifiedTime(path) : MISSING;
+        } catch (IOException e) {
+            return MISSING;
+        }
+    }
+}
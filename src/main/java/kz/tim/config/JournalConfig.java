@@ -0,0 +1,131 @@
+package kz.tim.config;
+
+import kz.tim.journal.FsyncPolicy;
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Settings of the spill journal, read from the {@code journal} section. Applied on startup only.
+ *
+ * @author Timur Tibeyev.
+ */
+public class JournalConfig {
+    /**
+     * Settings of a disabled journal.
+     */
+    public static final JournalConfig DISABLED = new JournalConfig(Collections.emptyMap());
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final int fsyncIntervalMillis;
+    private final int replayBatchSize;
+    private final int spillQueueSize;
+    private final int maxBlockMillis;
+
+    JournalConfig(Map<String, Object> section) {
+        enabled = ConfigValues.getBoolean(section, "enabled", false);
+        directory = Paths.get(ConfigValues.getString(section, "directory", defaultDirectory()));
+        fsyncPolicy = ConfigValues.getEnum(section, "fsync", FsyncPolicy.class,
+                FsyncPolicy.PERIODIC);
+        fsyncIntervalMillis = ConfigValues.getInt(section, "fsync_interval_ms", 1000);
+        replayBatchSize = ConfigValues.getInt(section, "replay_batch_size", 500);
+        spillQueueSize = ConfigValues.getInt(section, "spill_queue_size", 10000);
+        maxBlockMillis = ConfigValues.getInt(section, "max_block_ms", 1000);
+        ConfigValues.checkPositive("journal.fsync_interval_ms", fsyncIntervalMillis);
+        ConfigValues.checkPositive("journal.replay_batch_size", replayBatchSize);
+        ConfigValues.checkPositive("journal.spill_queue_size", spillQueueSize);
+
+        int segmentSizeMb = ConfigValues.getInt(section, "segment_size_mb", 64);
+        ConfigValues.checkPositive("journal.segment_size_mb", segmentSizeMb);
+        if (segmentSizeMb > 1024) {
+            throw new ConfigurationException(
+                    "journal.segment_size_mb must not exceed 1024, got " + segmentSizeMb);
+        }
+        segmentSize = (int) (segmentSizeMb * MEGABYTE);
+        int maxSizeMb = ConfigValues.getInt(section, "max_size_mb", 1024);
+        ConfigValues.checkPositive("journal.max_size_mb", maxSizeMb);
+        maxSize = Math.max(segmentSize, maxSizeMb * MEGABYTE);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns directory of the journal segments, by default {@code trigger-journal}
+     * in the Cassandra storage directory.
+     *
+     * @return journal directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns size of a single memory-mapped segment file.
+     *
+     * @return segment size in bytes.
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns bound of the disk space taken by the segments, records which don't fit are lost.
+     *
+     * @return maximum journal size in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public int getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+
+    /**
+     * Returns number of records replayed at once after Kafka recovers.
+     *
+     * @return replay batch size.
+     */
+    public int getReplayBatchSize() {
+        return replayBatchSize;
+    }
+
+    /**
+     * Returns number of failed records which may wait to be appended to the journal, records
+     * failing while the queue is full are lost.
+     *
+     * @return spill queue capacity.
+     */
+    public int getSpillQueueSize() {
+        return spillQueueSize;
+    }
+
+    /**
+     * Returns {@code max.block.ms} of the producers whose profile doesn't set it, so an
+     * unavailable broker turns into spilled records instead of blocked worker threads.
+     *
+     * @return maximum blocking time of a send in milliseconds.
+     */
+    public int getMaxBlockMillis() {
+        return maxBlockMillis;
+    }
+
+    private static String defaultDirectory() {
+        String storageDir = System.getProperty("cassandra.storagedir");
+        return storageDir == null ? "trigger-journal" : storageDir + "/trigger-journal";
+    }
+}
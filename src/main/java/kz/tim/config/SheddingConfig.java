@@ -0,0 +1,86 @@
+package kz.tim.config;
+
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+import java.util.Map;
+
+/**
+ * Settings of the load shedding, read from the {@code shedding} section. Load is the fill ratio
+ * of the worker queue or of the producer buffers, whichever is higher, in percent.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SheddingConfig {
+    private final boolean enabled;
+    private final int keysOnlyPercent;
+    private final int samplePercent;
+    private final int dropPercent;
+    private final int sampleRatePercent;
+    private final int checkIntervalMillis;
+
+    SheddingConfig(Map<String, Object> section) {
+        enabled = ConfigValues.getBoolean(section, "enabled", false);
+        keysOnlyPercent = ConfigValues.getInt(section, "keys_only_at_percent", 50);
+        samplePercent = ConfigValues.getInt(section, "sample_at_percent", 75);
+        dropPercent = ConfigValues.getInt(section, "drop_at_percent", 90);
+        sampleRatePercent = ConfigValues.getInt(section, "sample_rate_percent", 10);
+        checkIntervalMillis = ConfigValues.getInt(section, "check_interval_ms", 100);
+        ConfigValues.checkPositive("shedding.keys_only_at_percent", keysOnlyPercent);
+        ConfigValues.checkPositive("shedding.sample_rate_percent", sampleRatePercent);
+        ConfigValues.checkPositive("shedding.check_interval_ms", checkIntervalMillis);
+        if (keysOnlyPercent > samplePercent || samplePercent > dropPercent) {
+            throw new ConfigurationException("shedding.keys_only_at_percent, sample_at_percent "
+                    + "and drop_at_percent must be ascending, got " + keysOnlyPercent + ", "
+                    + samplePercent + ", " + dropPercent);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns load at which updates are sent without cells.
+     *
+     * @return load in percent.
+     */
+    public int getKeysOnlyPercent() {
+        return keysOnlyPercent;
+    }
+
+    /**
+     * Returns load at which only a sample of the updates is sent.
+     *
+     * @return load in percent.
+     */
+    public int getSamplePercent() {
+        return samplePercent;
+    }
+
+    /**
+     * Returns load at which updates are dropped.
+     *
+     * @return load in percent, above {@code 100} never.
+     */
+    public int getDropPercent() {
+        return dropPercent;
+    }
+
+    /**
+     * Returns share of the updates sent while they are sampled.
+     *
+     * @return share in percent.
+     */
+    public int getSampleRatePercent() {
+        return sampleRatePercent;
+    }
+
+    /**
+     * Returns how often the load is measured.
+     *
+     * @return interval in milliseconds.
+     */
+    public int getCheckIntervalMillis() {
+        return checkIntervalMillis;
+    }
+}
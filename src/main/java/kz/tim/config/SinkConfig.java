@@ -0,0 +1,96 @@
+package kz.tim.config;
+
+import kz.tim.sink.SinkType;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Settings of the sink receiving the records, read from the {@code sink} section.
+ * Applied on startup only.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SinkConfig {
+    private static final long KILOBYTE = 1024;
+    private static final long MEGABYTE = 1024 * KILOBYTE;
+
+    private final SinkType type;
+    private final Path directory;
+    private final long segmentSize;
+    private final int batchSize;
+    private final int flushIntervalMillis;
+    private final int memoryCapacity;
+
+    SinkConfig(Map<String, Object> section) {
+        type = ConfigValues.getEnum(section, "type", SinkType.class, SinkType.KAFKA);
+        directory = Paths.get(ConfigValues.getString(section, "directory", defaultDirectory()));
+        flushIntervalMillis = ConfigValues.getInt(section, "flush_interval_ms", 100);
+        memoryCapacity = ConfigValues.getInt(section, "memory_capacity", 100000);
+        ConfigValues.checkPositive("sink.flush_interval_ms", flushIntervalMillis);
+        ConfigValues.checkPositive("sink.memory_capacity", memoryCapacity);
+
+        int segmentSizeMb = ConfigValues.getInt(section, "segment_size_mb", 256);
+        ConfigValues.checkPositive("sink.segment_size_mb", segmentSizeMb);
+        segmentSize = segmentSizeMb * MEGABYTE;
+        int batchSizeKb = ConfigValues.getInt(section, "batch_size_kb", 256);
+        ConfigValues.checkPositive("sink.batch_size_kb", batchSizeKb);
+        batchSize = (int) (batchSizeKb * KILOBYTE);
+    }
+
+    public SinkType getType() {
+        return type;
+    }
+
+    /**
+     * Returns directory of the file sink logs, by default {@code trigger-sink}
+     * in the Cassandra storage directory.
+     *
+     * @return log directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns size after which the file sink starts a new log file.
+     *
+     * @return segment size in bytes.
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns size of the buffer in which the file sink collects records written at once.
+     *
+     * @return batch size in bytes.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns how long records may wait in a partially filled batch of the file sink.
+     *
+     * @return flush interval in milliseconds.
+     */
+    public int getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * Returns number of the latest records kept by the memory sink.
+     *
+     * @return number of records.
+     */
+    public int getMemoryCapacity() {
+        return memoryCapacity;
+    }
+
+    private static String defaultDirectory() {
+        String storageDir = System.getProperty("cassandra.storagedir");
+        return storageDir == null ? "trigger-sink" : storageDir + "/trigger-sink";
+    }
+}
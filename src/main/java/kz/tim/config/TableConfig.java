@@ -0,0 +1,289 @@
+package kz.tim.config;
+
+import kz.tim.serializers.EventFormat;
+import kz.tim.serializers.KeyFormat;
+import kz.tim.serializers.ValueFormat;
+import kz.tim.shedding.SheddingPriority;
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings applied to partition updates of a single table. Every setting missing in the table
+ * section of the configuration file is inherited from the {@code defaults} section.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TableConfig {
+    static final TableConfig DEFAULT = new TableConfig("test-topic", "default", EventFormat.JSON,
+            ValueFormat.DECODED, KeyFormat.STRING, false, false, 500, 900 * 1024,
+            Collections.emptySet(), Collections.emptySet(), 0, 10000, false, 4 * 1024 * 1024,
+            SheddingPriority.NORMAL, 1000, 100, false, 0);
+
+    private final String topic;
+    private final String producer;
+    private final EventFormat eventFormat;
+    private final ValueFormat valueFormat;
+    private final KeyFormat keyFormat;
+    private final boolean tokenPartitioning;
+    private final boolean aggregatePartitionUpdates;
+    private final int aggregateMaxItems;
+    private final int aggregateMaxBytes;
+    private final Set<String> includeColumns;
+    private final Set<String> excludeColumns;
+    private final int coalesceWindowMillis;
+    private final int coalesceMaxKeys;
+    private final boolean streamPartitionUpdates;
+    private final int streamMaxInFlightBytes;
+    private final SheddingPriority sheddingPriority;
+    private final int batchMaxRows;
+    private final int batchWindowMillis;
+    private final boolean includeTimestamps;
+    private final int parallelExtractionRows;
+
+    private TableConfig(String topic, String producer, EventFormat eventFormat,
+                        ValueFormat valueFormat, KeyFormat keyFormat, boolean tokenPartitioning,
+                        boolean aggregatePartitionUpdates, int aggregateMaxItems,
+                        int aggregateMaxBytes, Set<String> includeColumns,
+                        Set<String> excludeColumns, int coalesceWindowMillis,
+                        int coalesceMaxKeys, boolean streamPartitionUpdates,
+                        int streamMaxInFlightBytes, SheddingPriority sheddingPriority,
+                        int batchMaxRows, int batchWindowMillis, boolean includeTimestamps,
+                        int parallelExtractionRows) {
+        this.topic = topic;
+        this.producer = producer;
+        this.eventFormat = eventFormat;
+        this.valueFormat = valueFormat;
+        this.keyFormat = keyFormat;
+        this.tokenPartitioning = tokenPartitioning;
+        this.aggregatePartitionUpdates = aggregatePartitionUpdates;
+        this.aggregateMaxItems = aggregateMaxItems;
+        this.aggregateMaxBytes = aggregateMaxBytes;
+        this.includeColumns = includeColumns;
+        this.excludeColumns = excludeColumns;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        this.coalesceMaxKeys = coalesceMaxKeys;
+        this.streamPartitionUpdates = streamPartitionUpdates;
+        this.streamMaxInFlightBytes = streamMaxInFlightBytes;
+        this.sheddingPriority = sheddingPriority;
+        this.batchMaxRows = batchMaxRows;
+        this.batchWindowMillis = batchWindowMillis;
+        this.includeTimestamps = includeTimestamps;
+        this.parallelExtractionRows = parallelExtractionRows;
+    }
+
+    /**
+     * Reads table section of the configuration file.
+     *
+     * @param section parsed yaml section.
+     * @param parent settings used for the keys missing in the section.
+     * @return table settings.
+     */
+    static TableConfig parse(Map<String, Object> section, TableConfig parent) {
+        TableConfig config = new TableConfig(
+                ConfigValues.getString(section, "topic", parent.topic),
+                ConfigValues.getString(section, "producer", parent.producer),
+                ConfigValues.getEnum(section, "event_format", EventFormat.class,
+                        parent.eventFormat),
+                ConfigValues.getEnum(section, "value_format", ValueFormat.class,
+                        parent.valueFormat),
+                ConfigValues.getEnum(section, "key_format", KeyFormat.class, parent.keyFormat),
+                ConfigValues.getBoolean(section, "token_partitioning", parent.tokenPartitioning),
+                ConfigValues.getBoolean(section, "aggregate_partition_updates",
+                        parent.aggregatePartitionUpdates),
+                ConfigValues.getInt(section, "aggregate_max_items", parent.aggregateMaxItems),
+                ConfigValues.getInt(section, "aggregate_max_bytes", parent.aggregateMaxBytes),
+                ConfigValues.getStringSet(section, "include_columns", parent.includeColumns),
+                ConfigValues.getStringSet(section, "exclude_columns", parent.excludeColumns),
+                ConfigValues.getInt(section, "coalesce_window_ms", parent.coalesceWindowMillis),
+                ConfigValues.getInt(section, "coalesce_max_keys", parent.coalesceMaxKeys),
+                ConfigValues.getBoolean(section, "stream_partition_updates",
+                        parent.streamPartitionUpdates),
+                ConfigValues.getInt(section, "stream_max_in_flight_bytes",
+                        parent.streamMaxInFlightBytes),
+                ConfigValues.getEnum(section, "shedding_priority", SheddingPriority.class,
+                        parent.sheddingPriority),
+                ConfigValues.getInt(section, "batch_max_rows", parent.batchMaxRows),
+                ConfigValues.getInt(section, "batch_window_ms", parent.batchWindowMillis),
+                ConfigValues.getBoolean(section, "include_timestamps", parent.includeTimestamps),
+                ConfigValues.getInt(section, "parallel_extraction_rows",
+                        parent.parallelExtractionRows));
+        ConfigValues.checkPositive("aggregate_max_items", config.aggregateMaxItems);
+        ConfigValues.checkPositive("aggregate_max_bytes", config.aggregateMaxBytes);
+        ConfigValues.checkPositive("coalesce_max_keys", config.coalesceMaxKeys);
+        ConfigValues.checkPositive("stream_max_in_flight_bytes", config.streamMaxInFlightBytes);
+        ConfigValues.checkPositive("batch_max_rows", config.batchMaxRows);
+        ConfigValues.checkPositive("batch_window_ms", config.batchWindowMillis);
+        if (config.parallelExtractionRows < 0) {
+            throw new ConfigurationException("parallel_extraction_rows must not be negative, got "
+                    + config.parallelExtractionRows);
+        }
+        return config;
+    }
+
+    /**
+     * Returns name of the Kafka topic the records of the table are sent to.
+     *
+     * @return topic name.
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Returns name of the producer profile used to send records of the table.
+     *
+     * @return producer profile name.
+     */
+    public String getProducer() {
+        return producer;
+    }
+
+    public EventFormat getEventFormat() {
+        return eventFormat;
+    }
+
+    public ValueFormat getValueFormat() {
+        return valueFormat;
+    }
+
+    public KeyFormat getKeyFormat() {
+        return keyFormat;
+    }
+
+    /**
+     * Send records to the Kafka partition derived from the partition token, so that
+     * consecutive token ranges are mapped to consecutive topic partitions.
+     *
+     * @return {@code true} if records are partitioned by token.
+     */
+    public boolean isTokenPartitioning() {
+        return tokenPartitioning;
+    }
+
+    /**
+     * Send one record per partition update instead of one record per row.
+     *
+     * @return {@code true} if partition updates are aggregated.
+     */
+    public boolean isAggregatePartitionUpdates() {
+        return aggregatePartitionUpdates;
+    }
+
+    /**
+     * Returns maximum number of rows and range tombstone markers in one aggregated record.
+     *
+     * @return maximum number of items.
+     */
+    public int getAggregateMaxItems() {
+        return aggregateMaxItems;
+    }
+
+    /**
+     * Returns size bound of one aggregated record, larger partition updates are split into chunks.
+     *
+     * @return maximum size in bytes.
+     */
+    public int getAggregateMaxBytes() {
+        return aggregateMaxBytes;
+    }
+
+    /**
+     * Checks whether the column is sent. Only columns from {@code include_columns} are sent
+     * if it is set, columns from {@code exclude_columns} are never sent.
+     * Primary key columns are always sent.
+     *
+     * @param columnName name of a regular or static column.
+     * @return {@code true} if cells of the column are extracted.
+     */
+    public boolean isColumnProjected(String columnName) {
+        return (includeColumns.isEmpty() || includeColumns.contains(columnName))
+                && !excludeColumns.contains(columnName);
+    }
+
+    /**
+     * Returns how long updates of the same primary key are merged before they are sent,
+     * {@code 0} disables coalescing.
+     *
+     * @return coalescing window in milliseconds.
+     */
+    public int getCoalesceWindowMillis() {
+        return coalesceWindowMillis;
+    }
+
+    /**
+     * Returns maximum number of rows buffered by the coalescing window of the table,
+     * the oldest partitions are sent earlier when it is exceeded.
+     *
+     * @return maximum number of buffered primary keys.
+     */
+    public int getCoalesceMaxKeys() {
+        return coalesceMaxKeys;
+    }
+
+    /**
+     * Send rows and range tombstone markers of a partition update as soon as they are
+     * extracted instead of extracting the whole update first. Applies to tables which
+     * send one record per row and don't coalesce updates.
+     *
+     * @return {@code true} if partition updates are streamed.
+     */
+    public boolean isStreamPartitionUpdates() {
+        return streamPartitionUpdates;
+    }
+
+    /**
+     * Returns maximum size of the records of a single streamed partition update which are
+     * not acknowledged by Kafka yet, streaming waits while it is exceeded.
+     *
+     * @return maximum size in bytes.
+     */
+    public int getStreamMaxInFlightBytes() {
+        return streamMaxInFlightBytes;
+    }
+
+    public SheddingPriority getSheddingPriority() {
+        return sheddingPriority;
+    }
+
+    /**
+     * Returns maximum number of rows in one batch of the columnar format.
+     *
+     * @return maximum number of rows.
+     */
+    public int getBatchMaxRows() {
+        return batchMaxRows;
+    }
+
+    /**
+     * Returns how long rows may wait for their batch of the columnar format to fill up.
+     *
+     * @return batch window in milliseconds.
+     */
+    public int getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+
+    /**
+     * Send write timestamps and TTLs of rows and cells and deletion timestamps, so consumers
+     * can resolve events arriving out of order the way Cassandra does.
+     *
+     * @return {@code true} if timestamps are sent.
+     */
+    public boolean isIncludeTimestamps() {
+        return includeTimestamps;
+    }
+
+    /**
+     * Returns number of rows from which partition updates are extracted in parallel by the
+     * extraction threads, in clustering order. Streamed updates are always extracted by the
+     * worker alone.
+     *
+     * @return row count, {@code 0} if updates are never extracted in parallel.
+     */
+    public int getParallelExtractionRows() {
+        return parallelExtractionRows;
+    }
+}
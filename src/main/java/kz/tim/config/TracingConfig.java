@@ -0,0 +1,76 @@
+package kz.tim.config;
+
+import org.apache.cassandra.exceptions.ConfigurationException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of the diagnostic tracing, read from the {@code tracing} section. Partition updates
+ * are traced if they are sampled or belong to the chosen tables or partitions.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TracingConfig {
+    private final boolean enabled;
+    private final int sampleOneIn;
+    private final Set<String> tables;
+    private final Set<String> partitionKeys;
+    private final int bufferSize;
+
+    TracingConfig(Map<String, Object> section) {
+        enabled = ConfigValues.getBoolean(section, "enabled", false);
+        sampleOneIn = ConfigValues.getInt(section, "sample_one_in", 0);
+        tables = ConfigValues.getStringSet(section, "tables", Collections.emptySet());
+        partitionKeys = ConfigValues.getStringSet(section, "partition_keys",
+                Collections.emptySet());
+        bufferSize = ConfigValues.getInt(section, "buffer_size", 1000);
+        ConfigValues.checkPositive("tracing.buffer_size", bufferSize);
+        if (sampleOneIn < 0) {
+            throw new ConfigurationException("tracing.sample_one_in must not be negative, got "
+                    + sampleOneIn);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns how many partition updates one random update is traced of.
+     *
+     * @return sampling ratio, {@code 0} if updates are not sampled.
+     */
+    public int getSampleOneIn() {
+        return sampleOneIn;
+    }
+
+    /**
+     * Returns keyspaces and tables as {@code <keyspace>.<table>} whose updates are all traced.
+     *
+     * @return traced keyspaces and tables.
+     */
+    public Set<String> getTables() {
+        return tables;
+    }
+
+    /**
+     * Returns partition keys whose updates are all traced, in the CQL text form with components
+     * of composite keys separated by {@code :}.
+     *
+     * @return traced partition keys.
+     */
+    public Set<String> getPartitionKeys() {
+        return partitionKeys;
+    }
+
+    /**
+     * Returns number of the latest traces kept for the dump. Read once on startup.
+     *
+     * @return buffer size.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,274 @@
+package kz.tim.config;
+
+import kz.tim.pipeline.OverflowPolicy;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the trigger, read from {@code cassandra-trigger.yaml} in the Cassandra
+ * configuration directory. The location may be overridden with
+ * {@code -Dcassandra.trigger.config=<path>}. Instances are immutable, the file is re-read
+ * by {@link ConfigWatcher} and the new snapshot replaces {@link #current()}.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TriggerConfig {
+    public static final String DEFAULT_PRODUCER = "default";
+    public static final String PRODUCER_SHARDS = "shards";
+    private static final String DEFAULT_BOOTSTRAP_SERVERS = "kafka:9092";
+    private static final String ANY_TABLE = "*";
+
+    private static volatile TriggerConfig current = defaults();
+
+    private final int pipelineThreads;
+    private final int pipelineQueueCapacity;
+    private final OverflowPolicy pipelineOverflowPolicy;
+    private final int extractionThreads;
+    private final Path schemaRegistryPath;
+    private final JournalConfig journalConfig;
+    private final SheddingConfig sheddingConfig;
+    private final SinkConfig sinkConfig;
+    private final TracingConfig tracingConfig;
+    private final int reloadIntervalSeconds;
+    private final Map<String, Map<String, Object>> producers;
+    private final TableConfig defaultTableConfig;
+    private final Map<String, TableConfig> tableConfigs;
+
+    private TriggerConfig(Map<String, Object> root) {
+        Map<String, Object> pipeline = ConfigValues.getSection(root, "pipeline");
+        pipelineThreads = ConfigValues.getInt(pipeline, "threads", 2);
+        pipelineQueueCapacity = ConfigValues.getInt(pipeline, "queue_capacity", 10000);
+        pipelineOverflowPolicy = ConfigValues.getEnum(pipeline, "overflow_policy",
+                OverflowPolicy.class, OverflowPolicy.BLOCK);
+        ConfigValues.checkPositive("pipeline.threads", pipelineThreads);
+        ConfigValues.checkPositive("pipeline.queue_capacity", pipelineQueueCapacity);
+        extractionThreads = ConfigValues.getInt(pipeline, "extraction_threads", 2);
+        ConfigValues.checkPositive("pipeline.extraction_threads", extractionThreads);
+
+        schemaRegistryPath = Paths.get(ConfigValues.getString(root, "schema_registry",
+                confDir() + "trigger-schemas.json"));
+        journalConfig = new JournalConfig(ConfigValues.getSection(root, "journal"));
+        sheddingConfig = new SheddingConfig(ConfigValues.getSection(root, "shedding"));
+        sinkConfig = new SinkConfig(ConfigValues.getSection(root, "sink"));
+        tracingConfig = new TracingConfig(ConfigValues.getSection(root, "tracing"));
+        reloadIntervalSeconds = ConfigValues.getInt(root, "reload_interval_seconds", 10);
+
+        Map<String, Map<String, Object>> producerProfiles = new HashMap<>();
+        Map<String, Object> producerSection = ConfigValues.getSection(root, "producers");
+        for (String name: producerSection.keySet()) {
+            // Kafka parses every property from its string form, but rejects e.g. integer acks.
+            Map<String, Object> properties = new LinkedHashMap<>();
+            ConfigValues.getSection(producerSection, name).forEach(
+                (key, value) -> properties.put(key, String.valueOf(value)));
+            if (!properties.containsKey(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG)) {
+                throw new ConfigurationException("Producer " + name + " has no "
+                        + ProducerConfig.BOOTSTRAP_SERVERS_CONFIG);
+            }
+            ConfigValues.checkPositive("producers." + name + "." + PRODUCER_SHARDS,
+                    ConfigValues.getInt(properties, PRODUCER_SHARDS, 1));
+            producerProfiles.put(name, Collections.unmodifiableMap(properties));
+        }
+        if (!producerProfiles.containsKey(DEFAULT_PRODUCER)) {
+            producerProfiles.put(DEFAULT_PRODUCER, Collections.singletonMap(
+                    ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, DEFAULT_BOOTSTRAP_SERVERS));
+        }
+        producers = Collections.unmodifiableMap(producerProfiles);
+
+        defaultTableConfig = TableConfig.parse(ConfigValues.getSection(root, "defaults"),
+                TableConfig.DEFAULT);
+        checkProducer("defaults", defaultTableConfig);
+        Map<String, TableConfig> tables = new HashMap<>();
+        Map<String, Object> tableSection = ConfigValues.getSection(root, "tables");
+        for (String name: tableSection.keySet()) {
+            if (name.indexOf('.') <= 0) {
+                throw new ConfigurationException("Table " + name
+                        + " must be specified as <keyspace>.<table> or <keyspace>.*");
+            }
+            TableConfig tableConfig = TableConfig.parse(
+                    ConfigValues.getSection(tableSection, name), defaultTableConfig);
+            checkProducer(name, tableConfig);
+            tables.put(name, tableConfig);
+        }
+        tableConfigs = tables;
+    }
+
+    /**
+     * Returns configuration currently in effect.
+     *
+     * @return configuration snapshot.
+     */
+    public static TriggerConfig current() {
+        return current;
+    }
+
+    static void setCurrent(TriggerConfig config) {
+        current = config;
+    }
+
+    /**
+     * Returns configuration used when there is no configuration file.
+     *
+     * @return default configuration.
+     */
+    public static TriggerConfig defaults() {
+        return new TriggerConfig(Collections.emptyMap());
+    }
+
+    /**
+     * Reads configuration file, missing file results in the default configuration.
+     *
+     * @param path configuration file.
+     * @return parsed configuration.
+     * @throws ConfigurationException if the file can't be read or is invalid.
+     */
+    public static TriggerConfig load(Path path) {
+        if (!Files.exists(path)) {
+            return defaults();
+        }
+        Object root;
+        try (InputStream input = Files.newInputStream(path)) {
+            root = new Yaml().load(input);
+        } catch (IOException | RuntimeException e) {
+            throw new ConfigurationException("Can't read trigger configuration " + path, e);
+        }
+        return new TriggerConfig(ConfigValues.asSection(path.toString(), root));
+    }
+
+    /**
+     * Returns location of the configuration file.
+     *
+     * @return configuration file path.
+     */
+    public static Path configPath() {
+        return Paths.get(System.getProperty("cassandra.trigger.config",
+                confDir() + "cassandra-trigger.yaml"));
+    }
+
+    /**
+     * Returns settings of the given table: its own section, then section of its keyspace
+     * ({@code <keyspace>.*}), then the {@code defaults} section.
+     *
+     * @param keyspaceName keyspace name.
+     * @param tableName table name.
+     * @return table settings.
+     */
+    public TableConfig table(String keyspaceName, String tableName) {
+        TableConfig tableConfig = tableConfigs.get(keyspaceName + "." + tableName);
+        if (tableConfig == null) {
+            tableConfig = tableConfigs.get(keyspaceName + "." + ANY_TABLE);
+        }
+        return tableConfig == null ? defaultTableConfig : tableConfig;
+    }
+
+    /**
+     * Returns Kafka producer properties of every producer profile, together with the number
+     * of producers the profile is sharded into under {@link #PRODUCER_SHARDS}, if it is set.
+     *
+     * @return properties by profile name.
+     */
+    public Map<String, Map<String, Object>> getProducers() {
+        return producers;
+    }
+
+    /**
+     * Returns number of worker threads processing partition updates off the write path.
+     * Read once on startup.
+     *
+     * @return number of threads.
+     */
+    public int getPipelineThreads() {
+        return pipelineThreads;
+    }
+
+    /**
+     * Returns total number of partition updates which may wait for the worker threads.
+     * Read once on startup.
+     *
+     * @return queue capacity.
+     */
+    public int getPipelineQueueCapacity() {
+        return pipelineQueueCapacity;
+    }
+
+    /**
+     * Returns what to do with partition updates when the queue is full. Read once on startup.
+     *
+     * @return overflow policy.
+     */
+    public OverflowPolicy getPipelineOverflowPolicy() {
+        return pipelineOverflowPolicy;
+    }
+
+    /**
+     * Returns number of threads shared by the workers to extract wide partition updates in
+     * parallel, see {@link TableConfig#getParallelExtractionRows()}. Read once on startup.
+     *
+     * @return number of threads.
+     */
+    public int getExtractionThreads() {
+        return extractionThreads;
+    }
+
+    /**
+     * Returns file of the local schema registry used by the binary format.
+     * Read once on startup.
+     *
+     * @return schema registry path.
+     */
+    public Path getSchemaRegistryPath() {
+        return schemaRegistryPath;
+    }
+
+    /**
+     * Returns settings of the spill journal. Read once on startup.
+     *
+     * @return journal settings.
+     */
+    public JournalConfig getJournalConfig() {
+        return journalConfig;
+    }
+
+    public SheddingConfig getSheddingConfig() {
+        return sheddingConfig;
+    }
+
+    /**
+     * Returns settings of the sink. Read once on startup.
+     *
+     * @return sink settings.
+     */
+    public SinkConfig getSinkConfig() {
+        return sinkConfig;
+    }
+
+    public TracingConfig getTracingConfig() {
+        return tracingConfig;
+    }
+
+    public int getReloadIntervalSeconds() {
+        return reloadIntervalSeconds;
+    }
+
+    private void checkProducer(String section, TableConfig tableConfig) {
+        if (!producers.containsKey(tableConfig.getProducer())) {
+            throw new ConfigurationException("Section " + section + " refers to unknown producer "
+                    + tableConfig.getProducer());
+        }
+    }
+
+    private static String confDir() {
+        String confDir = System.getenv("CASSANDRA_CONF");
+        return confDir == null ? "" : confDir + "/";
+    }
+}
@@ -1,305 +1,209 @@
 package kz.tim.extractors;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.tim.extractors.decoders.RawDecoder;
+import kz.tim.extractors.decoders.UserTypeDecoder;
+import kz.tim.extractors.decoders.ValueDecoder;
+import kz.tim.extractors.plan.ColumnPlan;
+import kz.tim.extractors.plan.ExtractionPlan;
 import kz.tim.models.row.cell.CellData;
 import kz.tim.models.row.cell.CellType;
+import kz.tim.models.row.cell.CollectionDelta;
+import kz.tim.models.row.cell.LazyValue;
 import org.apache.cassandra.config.ColumnDefinition;
-import org.apache.cassandra.cql3.FieldIdentifier;
-import org.apache.cassandra.cql3.Json;
-import org.apache.cassandra.db.marshal.AbstractType;
-import org.apache.cassandra.db.marshal.CounterColumnType;
-import org.apache.cassandra.db.marshal.ListType;
-import org.apache.cassandra.db.marshal.MapType;
-import org.apache.cassandra.db.marshal.SetType;
-import org.apache.cassandra.db.marshal.TupleType;
 import org.apache.cassandra.db.marshal.UserType;
-import org.apache.cassandra.db.partitions.Partition;
 import org.apache.cassandra.db.rows.Cell;
 import org.apache.cassandra.db.rows.CellPath;
+import org.apache.cassandra.db.rows.ColumnData;
 import org.apache.cassandra.db.rows.ComplexColumnData;
 import org.apache.cassandra.db.rows.Row;
-import org.apache.cassandra.transport.ProtocolVersion;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.Set;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.LinkedList;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Class responsible for extracting cells information from row update.
+ * Values are not decoded here, cells carry {@link LazyValue}s decoded by the serializers.
+ * Every column of the row is visited once: cells of a non-frozen collection are walked in
+ * a single pass into a {@link CollectionDelta}, together with the collection tombstone.
  *
  * @author Timur Tibeyev.
  */
 public class CellExtractor {
-    private Partition update;
-    private Map<String, Object> dataMap = new HashMap<>();
-    private Map<String, Object> deletedDataMap = new HashMap<>();
-    private Set<String> deletedColumns = new HashSet<>();
-    private Map<String, CellType> columnTypeMap = new HashMap<>();
-    private ObjectMapper mapper = new ObjectMapper();
-    private TypeReference typeRef = new TypeReference<HashMap<String, Object>>() {};
+    private ExtractionPlan plan;
+    private boolean timestamps;
 
-    public CellExtractor(Partition update) {
-        this.update = update;
+    public CellExtractor(ExtractionPlan plan) {
+        reset(plan);
+    }
+
+    CellExtractor() {
     }
 
     /**
      * Extracts cell modifications from {@link Row} object.
+     * Cells of the columns which are not projected are skipped without decoding.
      *
      * @return list of modified cells.
      */
     public List<CellData> extractCells(Row row) {
-        for (Cell cell: row.cells()) {
-            if (cell.column().type instanceof UserType) {
-                processUserTypeCell(row, cell);
-            } else
-            if (cell.column().type instanceof ListType) {
-                processListTypeCell(cell);
-            } else
-            if (cell.column().type instanceof SetType) {
-                processSetTypeCell(cell);
-            } else
-            if (cell.column().type instanceof MapType) {
-                processMapTypeCell(cell);
-            } else
-            if (cell.column().type instanceof TupleType) {
-                processTupleTypeCell(cell);
+        List<CellData> result = new ArrayList<>(row.columns().size());
+        for (ColumnData columnData: row) {
+            ColumnPlan columnPlan = plan.column(columnData.column());
+            if (!columnPlan.isProjected()) {
+                continue;
+            }
+            CellData cellData = cellData(columnPlan);
+            if (!columnData.column().isComplex()) {
+                processSimpleCell(cellData, (Cell) columnData);
             } else
-            if (cell.column().type instanceof CounterColumnType) {
-                processCounterTypeCell(cell);
+            if (columnPlan.getCellType() == CellType.UDT) {
+                processUserType(cellData, (ComplexColumnData) columnData);
             } else {
-                processSimpleCell(cell);
+                processCollection(cellData, (ComplexColumnData) columnData);
             }
+            result.add(cellData);
         }
-        return constructCellList(row);
-    }
-
-    private List<CellData> constructCellList(Row row) {
-        List<CellData> result = new LinkedList<>();
-        Set<String> columns = new HashSet<>();
-        for (Cell cell: row.cells()) {
-            String columnName = cell.column().name.toString();
-            if (!columns.contains(columnName)) {
-                columns.add(columnName);
-                CellData cellData = new CellData();
-                cellData.setName(columnName);
-                cellData.setType(columnTypeMap.getOrDefault(columnName, CellType.SIMPLE));
-                if (deletedColumns.contains(columnName)) {
-                    cellData.setDeleted(true);
-
-                } else {
-                    cellData.setValue(dataMap.get(columnName));
-                    cellData.setDeletedItems(deletedDataMap.get(columnName));
-                }
-                result.add(cellData);
-            }
-        }
-
-        result.addAll(getDeletedComplexCells(row));
         return result;
     }
 
-    private  List<CellData> getDeletedComplexCells(Row row) {
-        return row.columns().stream().filter(it -> it.isComplex()
-                && !row.getComplexColumnData(it).complexDeletion().isLive()
-                && !columnTypeMap.containsKey(it.name.toString())).map(cf -> {
-                    CellData cellData = new CellData();
-                    cellData.setName(cf.name.toString());
-                    cellData.setDeleted(true);
-                    cellData.setType(getCellType(cf));
-                    return cellData;
-                }).collect(Collectors.toList());
+    void reset(ExtractionPlan plan) {
+        this.plan = plan;
+        timestamps = plan != null && plan.getTableConfig().isIncludeTimestamps();
     }
 
-    private CellType getCellType(ColumnDefinition cf) {
-        CellType cellType;
-        if (cf.type instanceof UserType) {
-            cellType = CellType.UDT;
-        } else
-        if (cf.type instanceof UserType) {
-            cellType = CellType.LIST;
-        } else
-        if (cf.type instanceof UserType) {
-            cellType = CellType.SET;
-        } else
-        if (cf.type instanceof UserType) {
-            cellType = CellType.MAP;
-        } else
-        if (cf.type instanceof UserType) {
-            cellType = CellType.TUPLE;
-        } else {
-            cellType = CellType.SIMPLE;
-        }
-        return cellType;
+    private CellData cellData(ColumnPlan columnPlan) {
+        CellData cellData = new CellData();
+        cellData.setName(columnPlan.getName());
+        cellData.setColumn(columnPlan);
+        cellData.setType(columnPlan.getCellType());
+        return cellData;
     }
 
-    private void  processSimpleCell(Cell cell) {
-        String columnName = cell.column().name.toString();
-        AbstractType cellValueType = cell.column().cellValueType();
-        Object cellValue = cellValueType.compose(cell.value());
-        columnTypeMap.put(columnName, CellType.SIMPLE);
-
-        if (cell.isLive(0)) {
-            dataMap.put(columnName, cellValue);
-        } else {
-            deletedColumns.add(columnName);
+    /**
+     * Handles regular cells, including frozen collections and user types.
+     */
+    private void processSimpleCell(CellData cellData, Cell cell) {
+        if (timestamps) {
+            cellData.setTimestamp(cell.timestamp());
+            cellData.setTtl(cell.ttl());
         }
-    }
-
-    private void processCounterTypeCell(Cell cell) {
-        String columnName = cell.column().name.toString();
-        columnTypeMap.put(columnName, CellType.COUNTER);
-        CounterColumnType cellValueType = (CounterColumnType) cell.column().cellValueType();
-
         if (cell.isLive(0)) {
-            Object cellValue = cellValueType.compose(cell.value());
-            dataMap.put(columnName, cellValue);
+            cellData.setValue(lazyValue(cellData.getColumn().getValueDecoder(), cell.value()));
         } else {
-            deletedColumns.add(columnName);
+            cellData.setDeleted(true);
         }
     }
 
-    private void processTupleTypeCell(Cell cell) {
-        String columnName = cell.column().name.toString();
-        columnTypeMap.put(columnName, CellType.TUPLE);
-        if (cell.isLive(0)) {
-            TupleType tupleType = (TupleType) cell.column().type;
-            ByteBuffer[] splitByteBuffer = tupleType.split(cell.value());
-            for (int i = 0; i < tupleType.allTypes().size(); i++) {
-                AbstractType valueType = tupleType.allTypes().get(i);
-                Object cellValue = valueType.compose(splitByteBuffer[i]);
-
-                List<Object> list = (List<Object>) dataMap
-                        .getOrDefault(columnName, new LinkedList<>());
-                list.add(getMapOrValue(valueType, splitByteBuffer[i], cellValue));
-            }
-        } else {
-            deletedColumns.add(columnName);
+    /**
+     * Collects added and removed elements of a non-frozen collection. A collection tombstone
+     * followed by elements is an overwrite, sent as a deleted cell with the new elements.
+     * Removed list elements are addressed by internal cell paths rather than by their values,
+     * so removing them marks the whole list deleted.
+     */
+    private void processCollection(CellData cellData, ComplexColumnData complexColumnData) {
+        ColumnPlan columnPlan = cellData.getColumn();
+        boolean list = columnPlan.getCellType() == CellType.LIST;
+        boolean listElementsRemoved = false;
+        CollectionDelta added = null;
+        CollectionDelta removed = null;
+        if (timestamps) {
+            setTimestamps(cellData, complexColumnData);
         }
-    }
-
-    private void processMapTypeCell(Cell cell) {
-        String columnName = cell.column().name.toString();
-        MapType columnType = (MapType) cell.column().type;
-        AbstractType cellValueType = cell.column().cellValueType();
-        Object cellValue = cellValueType.compose(cell.value());
-        columnTypeMap.put(columnName, CellType.MAP);
-
-        AbstractType keysType = columnType.getKeysType();
-        CellPath path = cell.path();
-        for (int i = 0; i < path.size(); i++) {
-            ByteBuffer byteBuffer = path.get(i);
-            Object cellKey = keysType.compose(byteBuffer);
-
+        for (Cell cell: complexColumnData) {
             if (cell.isLive(0)) {
-                Map<Object, Object> map = (Map<Object, Object>) dataMap
-                        .getOrDefault(columnName, new HashMap<>());
-                map.put(cellKey, getMapOrValue(cellValueType, cell.value(), cellValue));
+                if (added == null) {
+                    added = new CollectionDelta(columnPlan, complexColumnData.cellsCount());
+                }
+                added.add(list ? null : cell.path().get(0), cell.value());
+            } else
+            if (list) {
+                listElementsRemoved = true;
             } else {
-                Map<Object, Object> map = (Map<Object, Object>) deletedDataMap
-                        .getOrDefault(columnName, new HashMap<>());
-                map.put(cellKey, getMapOrValue(cellValueType, cell.value(), cellValue));
+                if (removed == null) {
+                    removed = new CollectionDelta(columnPlan, complexColumnData.cellsCount());
+                }
+                // Tombstones carry no value.
+                removed.add(cell.path().get(0), null);
             }
         }
+        if (listElementsRemoved) {
+            cellData.setDeleted(true);
+            return;
+        }
+        cellData.setDeleted(!complexColumnData.complexDeletion().isLive());
+        cellData.setValue(added);
+        cellData.setDeletedItems(removed);
     }
 
-    private void processSetTypeCell(Cell cell) {
-        String columnName = cell.column().name.toString();
-        SetType columnType = (SetType) cell.column().type;
-        columnTypeMap.put(columnName, CellType.SET);
-
-        CellPath path = cell.path();
-        for (int i = 0; i < path.size(); i++) {
-            ByteBuffer byteBuffer = path.get(i);
-            AbstractType keysType = columnType.getElementsType();
-            Object cellValue = keysType.compose(byteBuffer);
-
+    /**
+     * Reads all fields of a non-frozen user type, the type is deleted if any of its fields
+     * is deleted.
+     */
+    private void processUserType(CellData cellData, ComplexColumnData complexColumnData) {
+        boolean live = false;
+        boolean deleted = false;
+        if (timestamps) {
+            setTimestamps(cellData, complexColumnData);
+        }
+        for (Cell cell: complexColumnData) {
             if (cell.isLive(0)) {
-                Set<Object> set = (Set<Object>) dataMap
-                        .getOrDefault(columnName, new HashSet<>());
-                set.add(getMapOrValue(keysType, cell.value(), cellValue));
+                live = true;
             } else {
-                Set<Object> set = (Set<Object>) deletedDataMap
-                        .getOrDefault(columnName, new HashSet<>());
-                set.add(getMapOrValue(keysType, cell.value(), cellValue));
+                deleted = true;
             }
         }
-    }
-
-    private void processListTypeCell(Cell cell) {
-        String columnName = cell.column().name.toString();
-        AbstractType cellValueType = cell.column().cellValueType();
-        Object cellValue = cellValueType.compose(cell.value());
-        columnTypeMap.put(columnName, CellType.LIST);
-
-        if (cell.isLive(0)) {
-            List<Object> list = (List<Object>) dataMap.getOrDefault(columnName, new LinkedList<>());
-            list.add(getMapOrValue(cellValueType, cell.value(), cellValue));
-        } else {
-            deletedColumns.add(columnName);
+        if (deleted || (!live && !complexColumnData.complexDeletion().isLive())) {
+            cellData.setDeleted(true);
+        } else
+        if (live) {
+            ColumnDefinition columnDef = complexColumnData.column();
+            cellData.setValue(extractUserType((UserType) columnDef.type,
+                    cellData.getColumn().getValueDecoder(), complexColumnData));
         }
     }
 
-    private void processUserTypeCell(Row row, Cell cell) {
-        ColumnDefinition columnDef = cell.column();
-        String columnName = columnDef.name.toString();
-        UserType columnType = (UserType) columnDef.type;
-        columnTypeMap.put(columnName, CellType.UDT);
-
-        if (cell.isLive(0)) {
-            if (columnDef.isComplex()) {
-                ComplexColumnData complexColumnData = row.getComplexColumnData(columnDef);
-                dataMap.put(columnName, extractUserType(columnType, complexColumnData));
-            } else {
-                dataMap.put(columnName, getValueAsMap(columnType, cell.value()));
-            }
-        } else {
-            deletedColumns.add(columnName);
+    /**
+     * Sets the latest timestamp and the longest TTL of the elements, the collection tombstone
+     * included.
+     */
+    private void setTimestamps(CellData cellData, ComplexColumnData complexColumnData) {
+        long timestamp = complexColumnData.complexDeletion().markedForDeleteAt();
+        int ttl = 0;
+        for (Cell cell: complexColumnData) {
+            timestamp = Math.max(timestamp, cell.timestamp());
+            ttl = Math.max(ttl, cell.ttl());
         }
+        cellData.setTimestamp(timestamp);
+        cellData.setTtl(ttl);
     }
 
-    private Map<String, Object> extractUserType(UserType userType,
+    /**
+     * Reads fields of the non-frozen user type, the decoder is {@link RawDecoder} for
+     * tables sending raw values.
+     */
+    private Map<String, Object> extractUserType(UserType userType, ValueDecoder decoder,
                                                 ComplexColumnData complexColumnData) {
-        Map<String, Object> res = new HashMap<>();
+        Map<String, Object> res = new LinkedHashMap<>();
         for (int i = 0; i < userType.size(); i++) {
-            AbstractType cellType = userType.fieldType(i);
-            FieldIdentifier cellName = userType.fieldName(i);
-            CellPath cellPath = userType.cellPathForField(cellName);
+            CellPath cellPath = userType.cellPathForField(userType.fieldName(i));
             Cell cell = complexColumnData.getCell(cellPath);
-
-            res.put(Json.quoteAsJsonString(cellName.toString()),
-                    getValueAsMap(cellType, cell.value()));
+            if (cell != null) {
+                if (decoder instanceof UserTypeDecoder) {
+                    UserTypeDecoder userTypeDecoder = (UserTypeDecoder) decoder;
+                    res.put(userTypeDecoder.getFieldName(i),
+                            lazyValue(userTypeDecoder.getFieldDecoder(i), cell.value()));
+                } else {
+                    res.put(userType.fieldNameAsString(i), lazyValue(decoder, cell.value()));
+                }
+            }
         }
         return res;
     }
 
-    private Map<Object, Object> getValueAsMap(AbstractType keyType, ByteBuffer byteBuffer) {
-        String json = keyType.toJSONString(byteBuffer,
-                ProtocolVersion.V4);
-        try {
-            return mapper.readValue(json, typeRef);
-        } catch (JsonParseException e) {
-            throw new RuntimeException(e);
-        } catch (JsonMappingException e) {
-            throw new RuntimeException(e);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private Object getMapOrValue(AbstractType keyType, ByteBuffer byteBuffer, Object defaultValue) {
-        if (keyType instanceof UserType) {
-            return getValueAsMap(keyType, byteBuffer);
-        } else {
-            return defaultValue;
-        }
+    private static LazyValue lazyValue(ValueDecoder decoder, ByteBuffer value) {
+        return value == null ? null : new LazyValue(value, decoder);
     }
 }
@@ -1,29 +1,44 @@
 package kz.tim.extractors;
 
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.extractors.plan.ExtractionPlanCache;
+import kz.tim.models.KeyValues;
 import kz.tim.models.PartitionData;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
+import kz.tim.models.row.RowData;
 
-import org.apache.cassandra.config.CFMetaData;
-import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.CompositeType;
 import org.apache.cassandra.db.partitions.Partition;
+import org.apache.cassandra.db.rows.RangeTombstoneMarker;
+import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.Unfiltered;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
 
 import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * Class responsible for extracting all information regarding partition update.
+ * Extractors keep scratch arrays sized from the column count of the table,
+ * {@link #extract(Partition, ExtractionPlan)} reuses them per thread.
  *
  * @author Timur Tibeyev.
  */
 public class DataExtractor {
-    private RowExtractor rowExtractor;
-    private RangeTombstoneMarkerExtractor rangeTombstoneMarkerExtractor;
+    private static final ThreadLocal<DataExtractor> LOCAL =
+            ThreadLocal.withInitial(DataExtractor::new);
+
+    private RowExtractor rowExtractor = new RowExtractor();
+    private RangeTombstoneMarkerExtractor rangeTombstoneMarkerExtractor =
+            new RangeTombstoneMarkerExtractor();
+    private Object[] keyValues = new Object[0];
     private Partition update;
+    private ExtractionPlan plan;
+
+    private DataExtractor() {
+    }
 
     /**
      * Parametrized constructor.
@@ -31,9 +46,73 @@ public class DataExtractor {
      * @param update partition update.
      */
     public DataExtractor(Partition update) {
-        this.update = update;
-        rowExtractor = new RowExtractor(update);
-        rangeTombstoneMarkerExtractor = new RangeTombstoneMarkerExtractor(update);
+        this(update, ExtractionPlanCache.instance.get(update.metadata()));
+    }
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     */
+    public DataExtractor(Partition update, ExtractionPlan plan) {
+        reset(update, plan, false);
+    }
+
+    /**
+     * Extracts partition modifications with the extractor of the current thread.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     * @return partition updates.
+     */
+    public static PartitionData extract(Partition update, ExtractionPlan plan) {
+        return extract(update, plan, false);
+    }
+
+    /**
+     * Extracts partition modifications with the extractor of the current thread.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     * @param keysOnly whether cells are left out, rows carry primary keys and actions only.
+     * @return partition updates.
+     */
+    public static PartitionData extract(Partition update, ExtractionPlan plan, boolean keysOnly) {
+        DataExtractor extractor = LOCAL.get();
+        try {
+            return extractor.reset(update, plan, keysOnly).extract();
+        } finally {
+            extractor.reset(null, null, false);
+        }
+    }
+
+    /**
+     * Extracts a chunk of the partition update with the extractor of the current thread,
+     * partition keys and deletion are only extracted with the first chunk.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     * @param keysOnly whether cells are left out, rows carry primary keys and actions only.
+     * @param items rows and range tombstone markers of the update in clustering order.
+     * @param from index of the first item of the chunk.
+     * @param to index after the last item of the chunk.
+     * @return partition updates of the chunk.
+     */
+    static PartitionData extract(Partition update, ExtractionPlan plan, boolean keysOnly,
+                                 List<Unfiltered> items, int from, int to) {
+        DataExtractor extractor = LOCAL.get();
+        try {
+            extractor.reset(update, plan, keysOnly);
+            PartitionData result = from == 0 ? extractor.extractPartition() : new PartitionData();
+            for (int i = from; i < to; i++) {
+                extractor.extractItem(items.get(i), result.getRows()::add,
+                        result.getRangeTombstoneMarkers()::add);
+            }
+            return result;
+        } finally {
+            extractor.reset(null, null, false);
+        }
     }
 
     /**
@@ -42,51 +121,93 @@ public class DataExtractor {
      * @return partition updates.
      */
     public PartitionData extract() {
+        PartitionData result = extractPartition();
+        extractContent(result.getRows()::add, result.getRangeTombstoneMarkers()::add);
+        return result;
+    }
+
+    /**
+     * Streams partition modifications with the extractor of the current thread.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     * @param keysOnly whether cells are left out, rows carry primary keys and actions only.
+     * @param stream receives the extracted items.
+     */
+    public static void stream(Partition update, ExtractionPlan plan, boolean keysOnly,
+                              PartitionStream stream) {
+        DataExtractor extractor = LOCAL.get();
+        try {
+            extractor.reset(update, plan, keysOnly).stream(stream);
+        } finally {
+            extractor.reset(null, null, false);
+        }
+    }
+
+    /**
+     * Extracts partition modifications from the {@link Partition} object, passing every row
+     * and range tombstone marker to the stream as soon as it is extracted.
+     *
+     * @param stream receives the extracted items.
+     */
+    public void stream(PartitionStream stream) {
+        stream.start(extractPartition());
+        extractContent(stream::row, stream::rangeTombstoneMarker);
+    }
+
+    private PartitionData extractPartition() {
         PartitionData result = new PartitionData();
         result.setPartitionKeys(extractPartitionKeys());
+        result.setDeleted(!update.partitionLevelDeletion().isLive());
+        result.setDeletionTimestamp(update.partitionLevelDeletion().markedForDeleteAt());
+        return result;
+    }
 
+    private void extractContent(Consumer<RowData> rows,
+                                Consumer<RangeTombstoneMarkerData> markers) {
         UnfilteredRowIterator iterator = update.unfilteredIterator();
         while (iterator.hasNext()) {
-            Unfiltered current = iterator.next();
-            if (current.isRow()) {
-                result.getRows().add(rowExtractor.extract(current.clustering()));
-            } else if (current.isRangeTombstoneMarker()) {
-                result.getRangeTombstoneMarkers()
-                        .add(rangeTombstoneMarkerExtractor.extract(current.clustering()));
-            }
+            extractItem(iterator.next(), rows, markers);
         }
-        return result;
     }
 
-    private SortedMap<String, Object> extractPartitionKeys() {
-        ByteBuffer key = update.partitionKey().getKey();
-        CFMetaData metadata = update.metadata();
-        SortedMap<String, Object> partitionKeyData = new TreeMap<>();
-
-        List<ColumnDefinition> partitionKeyList = metadata.partitionKeyColumns();
-        if (partitionKeyList.size() == 1) {
+    private void extractItem(Unfiltered current, Consumer<RowData> rows,
+                             Consumer<RangeTombstoneMarkerData> markers) {
+        if (current.isRow()) {
+            rows.accept(rowExtractor.extract((Row) current));
+        } else if (current.isRangeTombstoneMarker()) {
+            markers.accept(rangeTombstoneMarkerExtractor.extract(
+                    (RangeTombstoneMarker) current));
+        }
+    }
 
-            AbstractType columnType = partitionKeyList.get(0).type;
-            String columnName = partitionKeyList.get(0).name.toString();
-            Object columnValue = columnType.compose(key);
+    /**
+     * Points the extractor and its row, cell and range tombstone marker extractors
+     * to the next update, {@code null} update releases the previous one.
+     */
+    private DataExtractor reset(Partition update, ExtractionPlan plan, boolean keysOnly) {
+        this.update = update;
+        this.plan = plan;
+        if (plan != null && keyValues.length < plan.getPartitionKeyNames().length) {
+            keyValues = new Object[plan.getPartitionKeyNames().length];
+        }
+        rowExtractor.reset(update, plan, keysOnly);
+        rangeTombstoneMarkerExtractor.reset(plan);
+        return this;
+    }
 
-            if (columnValue != null) {
-                partitionKeyData.put(columnName, columnValue);
-            }
+    private KeyValues extractPartitionKeys() {
+        ByteBuffer key = update.partitionKey().getKey();
+        String[] partitionKeyNames = plan.getPartitionKeyNames();
+        AbstractType[] partitionKeyTypes = plan.getPartitionKeyTypes();
+        if (partitionKeyNames.length == 1) {
+            keyValues[0] = partitionKeyTypes[0].compose(key);
         } else {
-            for (int i = 0; i < partitionKeyList.size(); i++) {
-                String columnName = partitionKeyList.get(i).name.toString();
-                AbstractType columnType = partitionKeyList.get(i).type;
-
+            for (int i = 0; i < partitionKeyNames.length; i++) {
                 ByteBuffer tempKey = CompositeType.extractComponent(key, i);
-                Object columnValue = columnType.compose(tempKey);
-
-                if (columnValue != null) {
-                    partitionKeyData.put(columnName, columnValue);
-                }
+                keyValues[i] = partitionKeyTypes[i].compose(tempKey);
             }
         }
-
-        return partitionKeyData;
+        return plan.getPartitionKeyLayout().values(keyValues, partitionKeyNames.length, true);
     }
 }
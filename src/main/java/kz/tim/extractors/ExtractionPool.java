@@ -0,0 +1,127 @@
+package kz.tim.extractors;
+
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.PartitionData;
+import org.apache.cassandra.db.partitions.AbstractBTreePartition;
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.cassandra.db.rows.Unfiltered;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts wide partition updates in parallel. Updates with at least
+ * {@link kz.tim.config.TableConfig#getParallelExtractionRows()} rows are split into consecutive
+ * chunks of rows and range tombstone markers; the calling worker extracts the first chunk
+ * while the pool threads extract the rest, and the chunks are joined in clustering order.
+ * Smaller updates are extracted on the calling thread. If a chunk fails, the chunks still
+ * waiting for a thread are cancelled.
+ *
+ * @author Timur Tibeyev.
+ */
+public class ExtractionPool {
+    private static final int MIN_CHUNK_ITEMS = 64;
+
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Parametrized constructor, threads are started on demand.
+     *
+     * @param threads number of extraction threads besides the calling worker.
+     */
+    public ExtractionPool(int threads) {
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "cassandra-trigger-extractor-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Extracts partition modifications, in parallel if the update is wide enough.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     * @param keysOnly whether cells are left out, rows carry primary keys and actions only.
+     * @return partition updates.
+     */
+    public PartitionData extract(Partition update, ExtractionPlan plan, boolean keysOnly) {
+        int threshold = plan.getTableConfig().getParallelExtractionRows();
+        if (threshold == 0 || !(update instanceof AbstractBTreePartition)
+                || ((AbstractBTreePartition) update).rowCount() < threshold) {
+            return DataExtractor.extract(update, plan, keysOnly);
+        }
+        List<Unfiltered> items = new ArrayList<>(((AbstractBTreePartition) update).rowCount());
+        UnfilteredRowIterator iterator = update.unfilteredIterator();
+        while (iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        int chunks = Math.max(1, Math.min(threads + 1, items.size() / MIN_CHUNK_ITEMS));
+        int chunkSize = (items.size() + chunks - 1) / chunks;
+
+        List<Future<PartitionData>> futures = new ArrayList<>(chunks - 1);
+        try {
+            for (int from = chunkSize; from < items.size(); from += chunkSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(items.size(), from + chunkSize);
+                futures.add(executor.submit(() -> DataExtractor.extract(update, plan, keysOnly,
+                        items, chunkFrom, chunkTo)));
+            }
+            PartitionData result = DataExtractor.extract(update, plan, keysOnly, items, 0,
+                    Math.min(items.size(), chunkSize));
+            for (Future<PartitionData> future: futures) {
+                PartitionData chunk = join(future);
+                result.getRows().addAll(chunk.getRows());
+                result.getRangeTombstoneMarkers().addAll(chunk.getRangeTombstoneMarkers());
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the extraction threads, chunks being extracted are finished.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Cancels chunks of a failed update and drops them from the queue, so they don't keep
+     * the update alive.
+     */
+    private void cancel(List<Future<PartitionData>> futures) {
+        for (Future<PartitionData> future: futures) {
+            future.cancel(true);
+        }
+        executor.purge();
+    }
+
+    private static PartitionData join(Future<PartitionData> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while extracting partition update", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Partition update extraction failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package kz.tim.extractors;
+
+import kz.tim.models.PartitionData;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
+import kz.tim.models.row.RowData;
+
+/**
+ * Receives partition update item by item, in clustering order, as it is extracted by
+ * {@link DataExtractor#stream(PartitionStream)}.
+ *
+ * @author Timur Tibeyev.
+ */
+public interface PartitionStream {
+
+    /**
+     * Called before the rows and range tombstone markers.
+     *
+     * @param partitionData partition keys and deletion of the update, without rows and markers.
+     */
+    void start(PartitionData partitionData);
+
+    /**
+     * Called for every row of the update.
+     *
+     * @param row row update.
+     */
+    void row(RowData row);
+
+    /**
+     * Called for every range tombstone marker of the update.
+     *
+     * @param marker range tombstone marker.
+     */
+    void rangeTombstoneMarker(RangeTombstoneMarkerData marker);
+}
@@ -1,15 +1,16 @@
 package kz.tim.extractors;
 
+import kz.tim.extractors.plan.ExtractionPlan;
 import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerBound;
 import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
 import org.apache.cassandra.db.ClusteringBound;
 import org.apache.cassandra.db.ClusteringPrefix;
-import org.apache.cassandra.db.partitions.Partition;
+import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.rows.RangeTombstoneMarker;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Class responsible for extracting range tombstone marker information from update.
@@ -17,10 +18,13 @@ import java.util.Map;
  * @author Timur Tibeyev.
  */
 public class RangeTombstoneMarkerExtractor {
-    private Partition update;
+    private ExtractionPlan plan;
 
-    public RangeTombstoneMarkerExtractor(Partition update) {
-        this.update = update;
+    public RangeTombstoneMarkerExtractor(ExtractionPlan plan) {
+        this.plan = plan;
+    }
+
+    RangeTombstoneMarkerExtractor() {
     }
 
     /**
@@ -31,20 +35,38 @@ public class RangeTombstoneMarkerExtractor {
      */
     public RangeTombstoneMarkerData extract(ClusteringPrefix clustering) {
         ClusteringBound bound = (ClusteringBound) clustering;
-        List<RangeTombstoneMarkerBound> bounds = new LinkedList<>();
+        List<RangeTombstoneMarkerBound> bounds = new ArrayList<>(bound.size());
         for (int i = 0; i < bound.size(); i++) {
-            String columnName = update.metadata().clusteringColumns().get(i).name.toCQLString();
-            Object columnValue = update.metadata().comparator.subtype(i).compose(bound.get(i));
-
-            Map<String, Object> clusteringKey = new HashMap<>();
-            clusteringKey.put(columnName, columnValue);
+            String columnName = plan.getClusteringNames()[i];
+            Object columnValue = plan.getClusteringTypes()[i].compose(bound.get(i));
 
-            RangeTombstoneMarkerBound rangeTombstoneMarkerData =
-                    new RangeTombstoneMarkerBound(clusteringKey, bound.isInclusive());
+            RangeTombstoneMarkerBound rangeTombstoneMarkerData = new RangeTombstoneMarkerBound(
+                    Collections.singletonMap(columnName, columnValue), bound.isInclusive());
 
             bounds.add(rangeTombstoneMarkerData);
         }
 
         return new RangeTombstoneMarkerData(bounds, bound.kind().isStart());
     }
+
+    /**
+     * Extracts range tombstone marker modifications from the partition update, together with
+     * the deletion timestamp if the table sends timestamps.
+     *
+     * @param marker range tombstone marker.
+     * @return range tombstone marker update
+     */
+    public RangeTombstoneMarkerData extract(RangeTombstoneMarker marker) {
+        RangeTombstoneMarkerData markerData = extract(marker.clustering());
+        if (plan.getTableConfig().isIncludeTimestamps()) {
+            DeletionTime deletionTime = marker.isOpen(false)
+                    ? marker.openDeletionTime(false) : marker.closeDeletionTime(false);
+            markerData.setTimestamp(deletionTime.markedForDeleteAt());
+        }
+        return markerData;
+    }
+
+    void reset(ExtractionPlan plan) {
+        this.plan = plan;
+    }
 }
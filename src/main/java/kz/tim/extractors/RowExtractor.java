@@ -1,16 +1,17 @@
 package kz.tim.extractors;
 
+import kz.tim.extractors.plan.ExtractionPlan;
 import kz.tim.models.row.RowAction;
 import kz.tim.models.row.RowData;
 import kz.tim.models.row.cell.CellData;
 import org.apache.cassandra.db.Clustering;
-import org.apache.cassandra.db.ClusteringPrefix;
+import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.partitions.Partition;
+import org.apache.cassandra.db.rows.ColumnData;
 import org.apache.cassandra.db.rows.Row;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Class responsible for extracting row information from update.
@@ -19,31 +20,39 @@ import java.util.TreeMap;
  */
 public class RowExtractor {
     private Partition update;
-    private CellExtractor cellExtractor;
+    private ExtractionPlan plan;
+    private CellExtractor cellExtractor = new CellExtractor();
+    private Object[] keyValues = new Object[0];
+    private boolean keysOnly;
 
-    public RowExtractor(Partition update) {
-        this.update = update;
-        cellExtractor = new CellExtractor(update);
+    /**
+     * Parametrized constructor.
+     *
+     * @param update partition update.
+     * @param plan extraction plan of the updated table.
+     */
+    public RowExtractor(Partition update, ExtractionPlan plan) {
+        reset(update, plan, false);
+    }
+
+    RowExtractor() {
     }
 
     /**
      * Extracts row modifications from the partition update.
      *
-     * @param clustering holds values for the clustering columns of a table
+     * @param row row of the partition update.
      * @return row update
      */
-    public RowData extract(ClusteringPrefix clustering) {
-        Map<String, Object> clusteringKeys = new TreeMap<>();
+    public RowData extract(Row row) {
+        Clustering clustering = row.clustering();
+        AbstractType[] clusteringTypes = plan.getClusteringTypes();
         for (int i = 0; i < clustering.size(); i++) {
-            String columnName = update.metadata().clusteringColumns().get(i).name.toCQLString();
-            Object columnValue = update.metadata().clusteringColumns().get(i)
-                    .type.compose(clustering.get(i));
-
-            clusteringKeys.put(columnName, columnValue);
+            keyValues[i] = clusteringTypes[i].compose(clustering.get(i));
         }
 
-        Row row = update.getRow((Clustering) clustering);
-        List<CellData> cells = cellExtractor.extractCells(row);
+        List<CellData> cells = keysOnly
+                ? Collections.emptyList() : cellExtractor.extractCells(row);
 
         RowAction action;
         if (rowIsDeleted(row)) {
@@ -55,7 +64,36 @@ public class RowExtractor {
             action = RowAction.UPDATE;
         }
 
-        return new RowData(action, clusteringKeys, cells);
+        RowData rowData = new RowData(action,
+                plan.getClusteringLayout().values(keyValues, clustering.size(), false), cells);
+        rowData.setRawClusteringKeys(clustering.getRawValues());
+        if (plan.getTableConfig().isIncludeTimestamps()) {
+            rowData.setTimestamp(maxTimestamp(row));
+            rowData.setTtl(row.primaryKeyLivenessInfo().ttl());
+        }
+        return rowData;
+    }
+
+    void reset(Partition update, ExtractionPlan plan, boolean keysOnly) {
+        this.update = update;
+        this.plan = plan;
+        this.keysOnly = keysOnly;
+        if (plan != null && keyValues.length < plan.getClusteringNames().length) {
+            keyValues = new Object[plan.getClusteringNames().length];
+        }
+        cellExtractor.reset(plan);
+    }
+
+    /**
+     * Returns the latest timestamp of the primary key, the row deletion and the cells.
+     */
+    private long maxTimestamp(Row row) {
+        long timestamp = Math.max(row.primaryKeyLivenessInfo().timestamp(),
+                row.deletion().time().markedForDeleteAt());
+        for (ColumnData columnData: row) {
+            timestamp = Math.max(timestamp, columnData.maxTimestamp());
+        }
+        return timestamp;
     }
 
     private boolean rowIsInserted(Row row) {
@@ -0,0 +1,71 @@
+package kz.tim.extractors.decoders;
+
+import org.apache.cassandra.serializers.CollectionSerializer;
+import org.apache.cassandra.transport.ProtocolVersion;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Decodes frozen lists, sets and maps element by element.
+ *
+ * @author Timur Tibeyev.
+ */
+public class CollectionDecoder implements ValueDecoder {
+    private final Kind kind;
+    private final ValueDecoder keysDecoder;
+    private final ValueDecoder valuesDecoder;
+
+    /**
+     * Kind of the decoded collection.
+     */
+    public enum Kind {
+        LIST, SET, MAP
+    }
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param kind kind of the collection.
+     * @param keysDecoder decoder of the map keys, {@code null} for lists and sets.
+     * @param valuesDecoder decoder of the elements or map values.
+     */
+    public CollectionDecoder(Kind kind, ValueDecoder keysDecoder, ValueDecoder valuesDecoder) {
+        this.kind = kind;
+        this.keysDecoder = keysDecoder;
+        this.valuesDecoder = valuesDecoder;
+    }
+
+    @Override
+    public Object decode(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        // Frozen collections are always stored in the protocol v3+ format.
+        ByteBuffer input = value.duplicate();
+        int size = CollectionSerializer.readCollectionSize(input, ProtocolVersion.V3);
+        if (kind == Kind.MAP) {
+            Map<Object, Object> result = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                Object key = keysDecoder.decode(readValue(input));
+                result.put(key, valuesDecoder.decode(readValue(input)));
+            }
+            return result;
+        }
+
+        Collection<Object> result = kind == Kind.SET
+                ? new LinkedHashSet<>() : new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(valuesDecoder.decode(readValue(input)));
+        }
+        return result;
+    }
+
+    private ByteBuffer readValue(ByteBuffer input) {
+        return CollectionSerializer.readValue(input, ProtocolVersion.V3);
+    }
+}
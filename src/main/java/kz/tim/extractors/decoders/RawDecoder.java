@@ -0,0 +1,21 @@
+package kz.tim.extractors.decoders;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Passes serialized values through without decoding, see
+ * {@link kz.tim.serializers.ValueFormat#RAW}.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class RawDecoder implements ValueDecoder {
+    public static final RawDecoder instance = new RawDecoder();
+
+    private RawDecoder() {
+    }
+
+    @Override
+    public Object decode(ByteBuffer value) {
+        return value;
+    }
+}
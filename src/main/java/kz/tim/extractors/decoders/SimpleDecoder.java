@@ -0,0 +1,30 @@
+package kz.tim.extractors.decoders;
+
+import org.apache.cassandra.db.marshal.AbstractType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes primitive values using type's own serializer.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SimpleDecoder implements ValueDecoder {
+    private final AbstractType type;
+
+    public SimpleDecoder(AbstractType type) {
+        this.type = type;
+    }
+
+    public AbstractType getType() {
+        return type;
+    }
+
+    @Override
+    public Object decode(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        return type.compose(value);
+    }
+}
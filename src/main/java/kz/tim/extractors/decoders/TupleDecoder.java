@@ -0,0 +1,43 @@
+package kz.tim.extractors.decoders;
+
+import org.apache.cassandra.db.marshal.TupleType;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes tuple values into list of the decoded components.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TupleDecoder implements ValueDecoder {
+    private final TupleType type;
+    private final ValueDecoder[] componentDecoders;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param type tuple type.
+     */
+    public TupleDecoder(TupleType type) {
+        this.type = type;
+        componentDecoders = new ValueDecoder[type.size()];
+        for (int i = 0; i < type.size(); i++) {
+            componentDecoders[i] = ValueDecoders.forType(type.type(i));
+        }
+    }
+
+    @Override
+    public Object decode(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        ByteBuffer[] components = type.split(value);
+        List<Object> result = new ArrayList<>(components.length);
+        for (int i = 0; i < components.length; i++) {
+            result.add(componentDecoders[i].decode(components[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package kz.tim.extractors.decoders;
+
+import org.apache.cassandra.db.marshal.UserType;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes user-defined type values into map of field names to decoded field values.
+ *
+ * @author Timur Tibeyev.
+ */
+public class UserTypeDecoder implements ValueDecoder {
+    private final UserType type;
+    private final String[] fieldNames;
+    private final ValueDecoder[] fieldDecoders;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param type user-defined type.
+     */
+    public UserTypeDecoder(UserType type) {
+        this.type = type;
+        fieldNames = new String[type.size()];
+        fieldDecoders = new ValueDecoder[type.size()];
+        for (int i = 0; i < type.size(); i++) {
+            fieldNames[i] = type.fieldName(i).toString();
+            fieldDecoders[i] = ValueDecoders.forType(type.fieldType(i));
+        }
+    }
+
+    public String getFieldName(int i) {
+        return fieldNames[i];
+    }
+
+    public ValueDecoder getFieldDecoder(int i) {
+        return fieldDecoders[i];
+    }
+
+    @Override
+    public Object decode(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        ByteBuffer[] fields = type.split(value);
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            result.put(fieldNames[i], fieldDecoders[i].decode(fields[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package kz.tim.extractors.decoders;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes serialized Cassandra value into the structure produced to Kafka.
+ * Decoders are stateless and resolved once per type, see {@link ValueDecoders}.
+ *
+ * @author Timur Tibeyev.
+ */
+public interface ValueDecoder {
+
+    /**
+     * Decodes the given value.
+     *
+     * @param value serialized value, may be {@code null}.
+     * @return decoded value or {@code null}.
+     */
+    Object decode(ByteBuffer value);
+}
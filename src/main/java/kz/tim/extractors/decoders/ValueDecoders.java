@@ -0,0 +1,53 @@
+package kz.tim.extractors.decoders;
+
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.ListType;
+import org.apache.cassandra.db.marshal.MapType;
+import org.apache.cassandra.db.marshal.ReversedType;
+import org.apache.cassandra.db.marshal.SetType;
+import org.apache.cassandra.db.marshal.TupleType;
+import org.apache.cassandra.db.marshal.UserType;
+
+/**
+ * Resolves {@link ValueDecoder} for Cassandra types. UDTs, tuples and frozen collections
+ * are walked natively, so nested values never go through an intermediate JSON string.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class ValueDecoders {
+
+    private ValueDecoders() {
+    }
+
+    /**
+     * Returns decoder for the whole serialized value of the given type.
+     *
+     * @param type Cassandra type.
+     * @return value decoder.
+     */
+    public static ValueDecoder forType(AbstractType type) {
+        if (type instanceof ReversedType) {
+            return forType(((ReversedType) type).baseType);
+        }
+        if (type instanceof UserType) {
+            return new UserTypeDecoder((UserType) type);
+        }
+        if (type instanceof TupleType) {
+            return new TupleDecoder((TupleType) type);
+        }
+        if (type instanceof ListType) {
+            return new CollectionDecoder(CollectionDecoder.Kind.LIST, null,
+                    forType(((ListType) type).getElementsType()));
+        }
+        if (type instanceof SetType) {
+            return new CollectionDecoder(CollectionDecoder.Kind.SET, null,
+                    forType(((SetType) type).getElementsType()));
+        }
+        if (type instanceof MapType) {
+            MapType mapType = (MapType) type;
+            return new CollectionDecoder(CollectionDecoder.Kind.MAP,
+                    forType(mapType.getKeysType()), forType(mapType.getValuesType()));
+        }
+        return new SimpleDecoder(type);
+    }
+}
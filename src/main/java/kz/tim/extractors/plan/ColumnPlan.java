@@ -0,0 +1,176 @@
+package kz.tim.extractors.plan;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import kz.tim.extractors.decoders.RawDecoder;
+import kz.tim.extractors.decoders.ValueDecoder;
+import kz.tim.extractors.decoders.ValueDecoders;
+import kz.tim.models.row.cell.CellType;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.CounterColumnType;
+import org.apache.cassandra.db.marshal.ListType;
+import org.apache.cassandra.db.marshal.MapType;
+import org.apache.cassandra.db.marshal.SetType;
+import org.apache.cassandra.db.marshal.TupleType;
+import org.apache.cassandra.db.marshal.UserType;
+
+/**
+ * Pre-resolved information about a single regular or static column of a table.
+ *
+ * @author Timur Tibeyev.
+ */
+public class ColumnPlan {
+    private final ColumnDefinition definition;
+    private final String name;
+    private final SerializableString encodedName;
+    private final int position;
+    private final CellType cellType;
+    private final AbstractType cellValueType;
+    private final AbstractType keysType;
+    private final ValueDecoder valueDecoder;
+    private final ValueDecoder keysDecoder;
+    private final boolean projected;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param definition column definition.
+     * @param position position of the column in the extraction plan.
+     * @param projected whether cells of the column are extracted.
+     * @param raw whether cell values are sent without decoding, counters are always decoded.
+     */
+    public ColumnPlan(ColumnDefinition definition, int position, boolean projected,
+                      boolean raw) {
+        this.definition = definition;
+        this.name = definition.name.toString();
+        this.encodedName = new SerializedString(name);
+        this.position = position;
+        this.cellType = resolveCellType(definition.type);
+        this.cellValueType = resolveCellValueType(definition);
+        this.keysType = resolveKeysType(definition.type);
+        boolean rawValues = raw && cellType != CellType.COUNTER;
+        this.valueDecoder = rawValues ? RawDecoder.instance : ValueDecoders.forType(cellValueType);
+        if (keysType == null) {
+            this.keysDecoder = null;
+        } else {
+            this.keysDecoder = rawValues ? RawDecoder.instance : ValueDecoders.forType(keysType);
+        }
+        this.projected = projected;
+    }
+
+    public ColumnDefinition getDefinition() {
+        return definition;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns column name with pre-computed json representation.
+     *
+     * @return encoded column name.
+     */
+    public SerializableString getEncodedName() {
+        return encodedName;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public CellType getCellType() {
+        return cellType;
+    }
+
+    /**
+     * Returns type of the values stored in the cells of this column.
+     * For collections it is the type of a single element (or map value).
+     *
+     * @return cell value type.
+     */
+    public AbstractType getCellValueType() {
+        return cellValueType;
+    }
+
+    /**
+     * Returns type of the cell path components: map keys or set elements.
+     *
+     * @return keys type or {@code null} for other columns.
+     */
+    public AbstractType getKeysType() {
+        return keysType;
+    }
+
+    /**
+     * Returns decoder of the cell values, see {@link #getCellValueType()}.
+     *
+     * @return value decoder.
+     */
+    public ValueDecoder getValueDecoder() {
+        return valueDecoder;
+    }
+
+    /**
+     * Returns decoder of the cell path components, see {@link #getKeysType()}.
+     *
+     * @return keys decoder or {@code null} for other columns.
+     */
+    public ValueDecoder getKeysDecoder() {
+        return keysDecoder;
+    }
+
+    /**
+     * Returns whether cells of the column are extracted, see
+     * {@link kz.tim.config.TableConfig#isColumnProjected(String)}.
+     *
+     * @return {@code false} if cells of the column are skipped.
+     */
+    public boolean isProjected() {
+        return projected;
+    }
+
+    private static CellType resolveCellType(AbstractType type) {
+        CellType cellType;
+        if (type instanceof UserType) {
+            cellType = CellType.UDT;
+        } else
+        if (type instanceof ListType) {
+            cellType = CellType.LIST;
+        } else
+        if (type instanceof SetType) {
+            cellType = CellType.SET;
+        } else
+        if (type instanceof MapType) {
+            cellType = CellType.MAP;
+        } else
+        if (type instanceof TupleType) {
+            cellType = CellType.TUPLE;
+        } else
+        if (type instanceof CounterColumnType) {
+            cellType = CellType.COUNTER;
+        } else {
+            cellType = CellType.SIMPLE;
+        }
+        return cellType;
+    }
+
+    private static AbstractType resolveCellValueType(ColumnDefinition definition) {
+        // ColumnDefinition.cellValueType() is not defined for non-frozen UDTs.
+        if (definition.type instanceof UserType && definition.type.isMultiCell()) {
+            return definition.type;
+        }
+        return definition.cellValueType();
+    }
+
+    private static AbstractType resolveKeysType(AbstractType type) {
+        if (type instanceof MapType) {
+            return ((MapType) type).getKeysType();
+        }
+        if (type instanceof SetType) {
+            return ((SetType) type).getElementsType();
+        }
+        return null;
+    }
+}
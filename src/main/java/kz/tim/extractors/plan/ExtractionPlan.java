@@ -0,0 +1,197 @@
+package kz.tim.extractors.plan;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import kz.tim.config.TableConfig;
+import kz.tim.config.TriggerConfig;
+import kz.tim.metrics.TableMetrics;
+import kz.tim.serializers.ValueFormat;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.marshal.AbstractType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Everything the extractors need to know about a table, resolved once from {@link CFMetaData}
+ * instead of on every partition update. Instances are shared between threads,
+ * see {@link ExtractionPlanCache}.
+ *
+ * @author Timur Tibeyev.
+ */
+public class ExtractionPlan {
+    private final UUID tableId;
+    private final UUID schemaVersion;
+    private final String keyspaceName;
+    private final String tableName;
+    private final SerializableString encodedKeyspaceName;
+    private final SerializableString encodedTableName;
+    private final TriggerConfig config;
+    private final TableConfig tableConfig;
+    private final TableMetrics metrics;
+
+    private final String[] partitionKeyNames;
+    private final AbstractType[] partitionKeyTypes;
+    private final String[] clusteringNames;
+    private final AbstractType[] clusteringTypes;
+    private final KeyLayout partitionKeyLayout;
+    private final KeyLayout clusteringLayout;
+
+    private final List<ColumnPlan> columns = new ArrayList<>();
+    private final Map<ColumnIdentifier, ColumnPlan> columnsByIdentifier = new IdentityHashMap<>();
+    private final Map<String, ColumnPlan> columnsByName = new HashMap<>();
+    private volatile Long schemaId;
+
+    /**
+     * Builds the plan for the given table.
+     *
+     * @param metadata table metadata.
+     * @param schemaVersion schema version the metadata belongs to, may be {@code null}.
+     * @param config trigger configuration.
+     */
+    public ExtractionPlan(CFMetaData metadata, UUID schemaVersion, TriggerConfig config) {
+        this.tableId = metadata.cfId;
+        this.schemaVersion = schemaVersion;
+        this.keyspaceName = metadata.ksName;
+        this.tableName = metadata.cfName;
+        this.encodedKeyspaceName = new SerializedString(keyspaceName);
+        this.encodedTableName = new SerializedString(tableName);
+        this.config = config;
+        this.tableConfig = config.table(keyspaceName, tableName);
+        this.metrics = TableMetrics.forTable(keyspaceName, tableName);
+
+        List<ColumnDefinition> partitionKeyList = metadata.partitionKeyColumns();
+        partitionKeyNames = new String[partitionKeyList.size()];
+        partitionKeyTypes = new AbstractType[partitionKeyList.size()];
+        for (int i = 0; i < partitionKeyList.size(); i++) {
+            partitionKeyNames[i] = partitionKeyList.get(i).name.toString();
+            partitionKeyTypes[i] = partitionKeyList.get(i).type;
+        }
+
+        List<ColumnDefinition> clusteringList = metadata.clusteringColumns();
+        clusteringNames = new String[clusteringList.size()];
+        clusteringTypes = new AbstractType[clusteringList.size()];
+        for (int i = 0; i < clusteringList.size(); i++) {
+            clusteringNames[i] = clusteringList.get(i).name.toCQLString();
+            clusteringTypes[i] = clusteringList.get(i).type;
+        }
+        partitionKeyLayout = new KeyLayout(partitionKeyNames);
+        clusteringLayout = new KeyLayout(clusteringNames);
+
+        for (ColumnDefinition definition: metadata.partitionColumns()) {
+            ColumnPlan columnPlan = new ColumnPlan(definition, columns.size(),
+                    tableConfig.isColumnProjected(definition.name.toString()),
+                    tableConfig.getValueFormat() == ValueFormat.RAW);
+            columns.add(columnPlan);
+            columnsByIdentifier.put(definition.name, columnPlan);
+            columnsByName.put(columnPlan.getName(), columnPlan);
+        }
+    }
+
+    public UUID getTableId() {
+        return tableId;
+    }
+
+    public UUID getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public String getKeyspaceName() {
+        return keyspaceName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public SerializableString getEncodedKeyspaceName() {
+        return encodedKeyspaceName;
+    }
+
+    public SerializableString getEncodedTableName() {
+        return encodedTableName;
+    }
+
+    /**
+     * Returns configuration snapshot the plan was built with.
+     *
+     * @return trigger configuration.
+     */
+    public TriggerConfig getConfig() {
+        return config;
+    }
+
+    public TableConfig getTableConfig() {
+        return tableConfig;
+    }
+
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    public String[] getPartitionKeyNames() {
+        return partitionKeyNames;
+    }
+
+    public AbstractType[] getPartitionKeyTypes() {
+        return partitionKeyTypes;
+    }
+
+    public String[] getClusteringNames() {
+        return clusteringNames;
+    }
+
+    public AbstractType[] getClusteringTypes() {
+        return clusteringTypes;
+    }
+
+    public KeyLayout getPartitionKeyLayout() {
+        return partitionKeyLayout;
+    }
+
+    public KeyLayout getClusteringLayout() {
+        return clusteringLayout;
+    }
+
+    public List<ColumnPlan> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns id of the table schema in the schema registry, assigned on first use.
+     *
+     * @return schema id or {@code null} if schema was not registered yet.
+     */
+    public Long getSchemaId() {
+        return schemaId;
+    }
+
+    public void setSchemaId(Long schemaId) {
+        this.schemaId = schemaId;
+    }
+
+    /**
+     * Returns plan of the given regular or static column.
+     *
+     * @param definition column definition.
+     * @return column plan.
+     */
+    public ColumnPlan column(ColumnDefinition definition) {
+        ColumnPlan columnPlan = columnsByIdentifier.get(definition.name);
+        if (columnPlan == null) {
+            // Identifiers are interned, so this is only reached for non-interned instances.
+            columnPlan = columnsByName.get(definition.name.toString());
+        }
+        if (columnPlan == null) {
+            throw new IllegalStateException("Unknown column " + definition.name
+                    + " for table " + keyspaceName + "." + tableName);
+        }
+        return columnPlan;
+    }
+}
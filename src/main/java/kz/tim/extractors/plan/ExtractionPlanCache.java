@@ -0,0 +1,48 @@
+package kz.tim.extractors.plan;
+
+import kz.tim.config.TriggerConfig;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Schema;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches {@link ExtractionPlan} per table. A plan is rebuilt as soon as the schema
+ * version changes, so ALTER TABLE statements are picked up by the next partition update,
+ * and when the trigger configuration is reloaded.
+ *
+ * @author Timur Tibeyev.
+ */
+public class ExtractionPlanCache {
+    public static final ExtractionPlanCache instance = new ExtractionPlanCache();
+
+    private final ConcurrentMap<UUID, ExtractionPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Returns plan for the given table, building it if it is missing or outdated.
+     *
+     * @param metadata table metadata.
+     * @return extraction plan.
+     */
+    public ExtractionPlan get(CFMetaData metadata) {
+        UUID schemaVersion = Schema.instance.getRealVersion();
+        TriggerConfig config = TriggerConfig.current();
+        ExtractionPlan plan = plans.get(metadata.cfId);
+        if (plan == null || !Objects.equals(plan.getSchemaVersion(), schemaVersion)
+                || plan.getConfig() != config) {
+            plan = new ExtractionPlan(metadata, schemaVersion, config);
+            plans.put(metadata.cfId, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Drops all cached plans.
+     */
+    public void invalidate() {
+        plans.clear();
+    }
+}
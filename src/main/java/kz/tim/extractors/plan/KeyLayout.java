@@ -0,0 +1,69 @@
+package kz.tim.extractors.plan;
+
+import kz.tim.models.KeyValues;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Partition key or clustering columns of a table sorted by name, used to build
+ * {@link KeyValues} without sorting on every update.
+ *
+ * @author Timur Tibeyev.
+ */
+public class KeyLayout {
+    private final String[] names;
+    private final int[] positions;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param schemaNames column names in schema order.
+     */
+    KeyLayout(String[] schemaNames) {
+        Integer[] order = new Integer[schemaNames.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(position -> schemaNames[position]));
+
+        names = new String[order.length];
+        positions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            positions[i] = order[i];
+            names[i] = schemaNames[order[i]];
+        }
+    }
+
+    /**
+     * Builds key values from values in schema order.
+     *
+     * @param values column values in schema order, not retained.
+     * @param count number of the first columns which are present.
+     * @param skipNulls whether {@code null} values are left out.
+     * @return key values.
+     */
+    public KeyValues values(Object[] values, int count, boolean skipNulls) {
+        if (count == 0) {
+            return KeyValues.EMPTY;
+        }
+        String[] resultNames = names;
+        Object[] result = new Object[names.length];
+        int size = 0;
+        for (int i = 0; i < names.length; i++) {
+            int position = positions[i];
+            if (position >= count || skipNulls && values[position] == null) {
+                continue;
+            }
+            if (size != i) {
+                // Names are shared unless some column is left out.
+                if (resultNames == names) {
+                    resultNames = Arrays.copyOf(names, names.length);
+                }
+                resultNames[size] = names[i];
+            }
+            result[size++] = values[position];
+        }
+        return new KeyValues(resultNames, result, size);
+    }
+}
@@ -0,0 +1,13 @@
+package kz.tim.journal;
+
+/**
+ * When {@link SpillJournal} forces appended records to disk.
+ * If it is {@link #ALWAYS}, then after every record.
+ * If it is {@link #PERIODIC}, then every {@code fsync_interval_ms} by a background thread.
+ * If it is {@link #NEVER}, then it is left to the operating system.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum FsyncPolicy {
+    ALWAYS, PERIODIC, NEVER
+}
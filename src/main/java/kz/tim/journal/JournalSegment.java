@@ -0,0 +1,141 @@
+package kz.tim.journal;
+
+import org.apache.cassandra.io.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Single memory-mapped file of the {@link SpillJournal}. Records are laid out as
+ * {@code [int length][int crc32][payload]}; the length is written last, so a record is visible
+ * only when it is complete. Zero length marks the end of the written data.
+ *
+ * @author Timur Tibeyev.
+ */
+class JournalSegment {
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+
+    private JournalSegment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates new segment file of the given size.
+     */
+    static JournalSegment create(Path path, long id, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new JournalSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    size));
+        }
+    }
+
+    /**
+     * Opens existing segment file, records after the first incomplete or corrupted one
+     * are discarded.
+     */
+    static JournalSegment open(Path path, long id) throws IOException {
+        JournalSegment segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = new JournalSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    channel.size()));
+        }
+        int position = 0;
+        while (segment.read(position) != null) {
+            position += HEADER_SIZE + segment.buffer.getInt(position);
+        }
+        segment.writePosition = position;
+        return segment;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    /**
+     * Appends record payload.
+     *
+     * @return {@code false} if there is not enough space left.
+     */
+    boolean append(byte[] payload) {
+        if (writePosition + HEADER_SIZE + payload.length > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer target = buffer.duplicate();
+        target.position(writePosition + HEADER_SIZE);
+        target.put(payload);
+        buffer.putInt(writePosition + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(writePosition, payload.length);
+        writePosition += HEADER_SIZE + payload.length;
+        return true;
+    }
+
+    /**
+     * Reads record payload at the given position.
+     *
+     * @return payload or {@code null} if there is no valid record at the position.
+     */
+    byte[] read(int position) {
+        if (position + HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + HEADER_SIZE);
+        source.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * Returns length of the record at the given position, including its header.
+     */
+    int recordSize(int position) {
+        return HEADER_SIZE + buffer.getInt(position);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Unmaps and deletes the segment file.
+     */
+    void delete() throws IOException {
+        FileUtils.clean(buffer);
+        Files.deleteIfExists(path);
+    }
+
+    void close() {
+        buffer.force();
+        FileUtils.clean(buffer);
+    }
+}
@@ -0,0 +1,360 @@
+package kz.tim.journal;
+
+import kz.tim.config.JournalConfig;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Append-only journal of Kafka records which could not be sent, stored in memory-mapped
+ * segment files of fixed size. Records are read back in the order they were appended and
+ * segments are deleted once all of their records are committed. The read position is
+ * checkpointed, so the backlog survives node restarts. Disk usage is bounded, records which
+ * don't fit are rejected.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SpillJournal implements SpillJournalMBean {
+    public static final String MBEAN_NAME = "kz.tim:type=SpillJournal";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "journal.checkpoint";
+    private static final long REJECT_WARNING_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final Logger logger = Logger.getLogger(SpillJournal.class);
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSegments;
+    private final FsyncPolicy fsyncPolicy;
+    private final LinkedList<JournalSegment> segments = new LinkedList<>();
+    private final FileChannel checkpoint;
+    private final ScheduledExecutorService flusher;
+    private int readPosition;
+    private long backlogRecords;
+    private long backlogBytes;
+    private final AtomicLong spilledRecords = new AtomicLong();
+    private final AtomicLong replayedRecords = new AtomicLong();
+    private final AtomicLong rejectedRecords = new AtomicLong();
+    private long lastRejectWarning;
+
+    /**
+     * Opens journal in the configured directory, recovering records left by the previous run.
+     *
+     * @param config journal settings.
+     * @throws IOException if the journal can't be opened.
+     */
+    public SpillJournal(JournalConfig config) throws IOException {
+        directory = config.getDirectory();
+        segmentSize = config.getSegmentSize();
+        maxSegments = Math.max(1, config.getMaxSize() / segmentSize);
+        fsyncPolicy = config.getFsyncPolicy();
+        Files.createDirectories(directory);
+
+        checkpoint = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+
+        if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cassandra-trigger-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::sync, config.getFsyncIntervalMillis(),
+                    config.getFsyncIntervalMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+        registerMBean();
+    }
+
+    /**
+     * Appends record to the end of the journal.
+     *
+     * @param record record to store.
+     * @return {@code false} if the record was rejected because the journal is full.
+     */
+    public synchronized boolean append(SpilledRecord record) {
+        byte[] payload = record.encode();
+        JournalSegment segment = segments.getLast();
+        if (!segment.append(payload)) {
+            boolean headConsumed = readPosition >= segments.getFirst().getWritePosition();
+            if (segments.size() >= maxSegments && !headConsumed
+                    || JournalSegment.HEADER_SIZE + payload.length > segmentSize) {
+                onRejected();
+                return false;
+            }
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                segment.force();
+            }
+            segment = createSegment(segment.getId() + 1);
+            segment.append(payload);
+            if (headConsumed) {
+                deleteSegment(segments.removeFirst());
+                readPosition = 0;
+                writeCheckpoint();
+            }
+        }
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            segment.force();
+        }
+        backlogRecords++;
+        backlogBytes += JournalSegment.HEADER_SIZE + payload.length;
+        spilledRecords.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Reads up to {@code limit} oldest records without removing them,
+     * see {@link #commit(int)}.
+     *
+     * @param limit maximum number of records.
+     * @return records in the order they were appended.
+     */
+    public synchronized List<SpilledRecord> read(int limit) {
+        List<SpilledRecord> records = new ArrayList<>();
+        Iterator<JournalSegment> iterator = segments.iterator();
+        JournalSegment segment = iterator.next();
+        int position = readPosition;
+        while (records.size() < limit) {
+            if (position >= segment.getWritePosition()) {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                segment = iterator.next();
+                position = 0;
+                continue;
+            }
+            records.add(SpilledRecord.decode(segment.read(position)));
+            position += segment.recordSize(position);
+        }
+        return records;
+    }
+
+    /**
+     * Removes the given number of oldest records, deleting fully consumed segments.
+     *
+     * @param count number of records returned by {@link #read(int)} which were sent.
+     */
+    public synchronized void commit(int count) {
+        for (int i = 0; i < count; i++) {
+            JournalSegment segment = segments.getFirst();
+            while (readPosition >= segment.getWritePosition() && segments.size() > 1) {
+                deleteSegment(segments.removeFirst());
+                segment = segments.getFirst();
+                readPosition = 0;
+            }
+            int recordSize = segment.recordSize(readPosition);
+            readPosition += recordSize;
+            backlogRecords--;
+            backlogBytes -= recordSize;
+        }
+        if (segments.size() > 1 && readPosition >= segments.getFirst().getWritePosition()) {
+            deleteSegment(segments.removeFirst());
+            readPosition = 0;
+        }
+        replayedRecords.addAndGet(count);
+        writeCheckpoint();
+    }
+
+    /**
+     * Checks whether all appended records were committed.
+     *
+     * @return {@code true} if there is no backlog.
+     */
+    public synchronized boolean isEmpty() {
+        return backlogRecords == 0;
+    }
+
+    /**
+     * Forces appended records to disk.
+     */
+    public synchronized void sync() {
+        segments.getLast().force();
+    }
+
+    /**
+     * Forces the journal to disk and closes it.
+     */
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        for (JournalSegment segment: segments) {
+            segment.close();
+        }
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close journal checkpoint", e);
+        }
+        unregisterMBean();
+    }
+
+    @Override
+    public synchronized long getBacklogRecords() {
+        return backlogRecords;
+    }
+
+    @Override
+    public synchronized long getBacklogBytes() {
+        return backlogBytes;
+    }
+
+    @Override
+    public synchronized int getSegments() {
+        return segments.size();
+    }
+
+    @Override
+    public long getSpilledRecords() {
+        return spilledRecords.get();
+    }
+
+    @Override
+    public long getReplayedRecords() {
+        return replayedRecords.get();
+    }
+
+    @Override
+    public long getRejectedRecords() {
+        return rejectedRecords.get();
+    }
+
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path: stream) {
+                String name = path.getFileName().toString();
+                ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        ids.sort(Long::compare);
+
+        long checkpointId = -1;
+        int checkpointPosition = 0;
+        ByteBuffer checkpointBuffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        if (checkpoint.read(checkpointBuffer, 0) == checkpointBuffer.capacity()) {
+            checkpointId = checkpointBuffer.getLong(0);
+            checkpointPosition = checkpointBuffer.getInt(Long.BYTES);
+        }
+
+        for (long id: ids) {
+            if (id < checkpointId) {
+                Files.deleteIfExists(segmentPath(id));
+            } else {
+                segments.add(JournalSegment.open(segmentPath(id), id));
+            }
+        }
+        if (segments.isEmpty()) {
+            createSegment(Math.max(checkpointId, ids.isEmpty() ? 0 : ids.get(ids.size() - 1)) + 1);
+        } else
+        if (segments.getFirst().getId() == checkpointId) {
+            readPosition = Math.min(checkpointPosition, segments.getFirst().getWritePosition());
+        }
+
+        boolean first = true;
+        for (JournalSegment segment: segments) {
+            int position = first ? readPosition : 0;
+            first = false;
+            while (position < segment.getWritePosition()) {
+                int recordSize = segment.recordSize(position);
+                backlogRecords++;
+                backlogBytes += recordSize;
+                position += recordSize;
+            }
+        }
+        if (backlogRecords > 0) {
+            logger.info("Spill journal recovered " + backlogRecords + " records ("
+                    + backlogBytes + " bytes) to replay");
+        }
+    }
+
+    private JournalSegment createSegment(long id) {
+        try {
+            JournalSegment segment = JournalSegment.create(segmentPath(id), id, segmentSize);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create journal segment " + id, e);
+        }
+    }
+
+    private void deleteSegment(JournalSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            logger.warn("Failed to delete journal segment " + segment.getId(), e);
+        }
+    }
+
+    private void writeCheckpoint() {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        buffer.putLong(segments.getFirst().getId()).putInt(readPosition).flip();
+        try {
+            checkpoint.write(buffer, 0);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                checkpoint.force(false);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write journal checkpoint", e);
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private void onRejected() {
+        long rejected = rejectedRecords.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (now - lastRejectWarning >= REJECT_WARNING_INTERVAL_MILLIS) {
+            lastRejectWarning = now;
+            logger.warn("Spill journal is full, records are lost, total lost: " + rejected);
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to register spill journal MBean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to unregister spill journal MBean", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package kz.tim.journal;
+
+/**
+ * JMX view of the {@link SpillJournal} backlog.
+ *
+ * @author Timur Tibeyev.
+ */
+public interface SpillJournalMBean {
+
+    /**
+     * Returns number of records waiting to be replayed.
+     *
+     * @return backlog records.
+     */
+    long getBacklogRecords();
+
+    /**
+     * Returns size of the records waiting to be replayed.
+     *
+     * @return backlog bytes.
+     */
+    long getBacklogBytes();
+
+    /**
+     * Returns number of segment files on disk.
+     *
+     * @return segments.
+     */
+    int getSegments();
+
+    /**
+     * Returns number of records appended since startup.
+     *
+     * @return spilled records.
+     */
+    long getSpilledRecords();
+
+    /**
+     * Returns number of records replayed since startup.
+     *
+     * @return replayed records.
+     */
+    long getReplayedRecords();
+
+    /**
+     * Returns number of records lost since startup because the journal was full.
+     *
+     * @return rejected records.
+     */
+    long getRejectedRecords();
+}
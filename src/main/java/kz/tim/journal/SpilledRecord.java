@@ -0,0 +1,119 @@
+package kz.tim.journal;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kafka record stored in the {@link SpillJournal} together with the name of the producer
+ * profile it has to be sent with. The same encoding is used by the file sink, so its logs
+ * can be replayed to Kafka later.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SpilledRecord {
+    private final String producer;
+    private final ProducerRecord<byte[], byte[]> record;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param producer producer profile name.
+     * @param record kafka record.
+     */
+    public SpilledRecord(String producer, ProducerRecord<byte[], byte[]> record) {
+        this.producer = producer;
+        this.record = record;
+    }
+
+    public String getProducer() {
+        return producer;
+    }
+
+    public ProducerRecord<byte[], byte[]> getRecord() {
+        return record;
+    }
+
+    /**
+     * Encodes producer, topic, partition ({@code -1} if not set), key, value and headers,
+     * byte arrays and strings are prefixed with their length, {@code -1} for {@code null}.
+     *
+     * @return encoded record.
+     */
+    public byte[] encode() {
+        byte[] producerBytes = producer.getBytes(StandardCharsets.UTF_8);
+        byte[] topic = record.topic().getBytes(StandardCharsets.UTF_8);
+        byte[] key = record.key();
+        Header[] headers = record.headers().toArray();
+
+        int size = 5 * Integer.BYTES + producerBytes.length + topic.length
+                + (key == null ? 0 : key.length) + record.value().length;
+        for (Header header: headers) {
+            size += 2 * Integer.BYTES + header.key().getBytes(StandardCharsets.UTF_8).length
+                    + (header.value() == null ? 0 : header.value().length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size + Integer.BYTES);
+        putBytes(buffer, producerBytes);
+        putBytes(buffer, topic);
+        buffer.putInt(record.partition() == null ? -1 : record.partition());
+        putBytes(buffer, key);
+        putBytes(buffer, record.value());
+        buffer.putInt(headers.length);
+        for (Header header: headers) {
+            putBytes(buffer, header.key().getBytes(StandardCharsets.UTF_8));
+            putBytes(buffer, header.value());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes record written by {@link #encode()}.
+     *
+     * @param payload encoded record.
+     * @return decoded record.
+     */
+    public static SpilledRecord decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        String producer = getString(buffer);
+        String topic = getString(buffer);
+        int partition = buffer.getInt();
+        byte[] key = getBytes(buffer);
+        byte[] value = getBytes(buffer);
+        int headerCount = buffer.getInt();
+        List<Header> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(new RecordHeader(getString(buffer), getBytes(buffer)));
+        }
+        return new SpilledRecord(producer,
+                new ProducerRecord<>(topic, partition < 0 ? null : partition, key, value,
+                        headers));
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = getBytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,290 @@
+package kz.tim.journal;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+/**
+ * Sends records to Kafka, spilling them to the {@link SpillJournal} when Kafka is unavailable.
+ * Once a record is spilled all following records go to the journal as well, until the replay
+ * thread drains it, so records are replayed in the order they were spilled. This is journal
+ * order, not write order: records which were already handed to a producer when Kafka became
+ * unavailable are spilled when their send fails, behind the records spilled in the meantime.
+ * Records are delivered at least once: a replayed batch is resent after a failure.
+ * Records are appended by a dedicated spill thread, so journal writes and fsyncs don't run on
+ * the Kafka network thread which completes failed sends. Records waiting for the spill thread
+ * are bounded, records which don't fit are rejected like the ones the full journal rejects.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SpillingDispatcher implements Runnable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final KafkaException JOURNAL_FULL =
+            new KafkaException("Spill journal is full, record is dropped");
+
+    private final Logger logger = Logger.getLogger(SpillingDispatcher.class);
+    private final SpillJournal journal;
+    private final BiFunction<String, Integer, Producer<byte[], byte[]>> producers;
+    private final int replayBatchSize;
+    private final Thread replayer;
+    private final Thread spiller;
+    private final int spillQueueSize;
+    private final BlockingQueue<PendingSpill> pendingSpills;
+    private final AtomicInteger unappendedSpills = new AtomicInteger();
+    private volatile boolean spilling;
+    private volatile boolean replaying = true;
+    private volatile boolean running = true;
+
+    /**
+     * Parametrized constructor, starts the replay and spill threads.
+     *
+     * @param journal spill journal.
+     * @param producers returns producer of the given profile and shard or {@code null}.
+     * @param replayBatchSize number of records replayed at once.
+     * @param spillQueueSize number of records waiting to be appended to the journal.
+     */
+    public SpillingDispatcher(SpillJournal journal,
+                              BiFunction<String, Integer, Producer<byte[], byte[]>> producers,
+                              int replayBatchSize, int spillQueueSize) {
+        this.journal = journal;
+        this.producers = producers;
+        this.replayBatchSize = replayBatchSize;
+        this.spillQueueSize = spillQueueSize;
+        pendingSpills = new LinkedBlockingQueue<>(spillQueueSize);
+        spilling = !journal.isEmpty();
+        replayer = new Thread(this, "cassandra-trigger-replay");
+        replayer.setDaemon(true);
+        replayer.start();
+        spiller = new Thread(this::appendSpills, "cassandra-trigger-spill");
+        spiller.setDaemon(true);
+        spiller.start();
+    }
+
+    /**
+     * Sends record with the producer of the given profile and shard or appends it to the journal.
+     * Spilled records are replayed with the first shard, so they are sent in the order
+     * they were spilled.
+     *
+     * @param producerName producer profile name.
+     * @param shard producer shard.
+     * @param record kafka record.
+     * @param callback notified when the record is sent directly, with {@code null} metadata
+     *                 and exception when it is spilled, or with an exception when it is
+     *                 rejected because the journal or the spill queue is full.
+     */
+    public void send(String producerName, int shard, ProducerRecord<byte[], byte[]> record,
+                     Callback callback) {
+        Producer<byte[], byte[]> producer = spilling ? null : producers.apply(producerName, shard);
+        while (producer != null) {
+            try {
+                producer.send(record, (metadata, exception) -> {
+                    if (exception instanceof RetriableException) {
+                        spill(producerName, record, callback);
+                    } else {
+                        callback.onCompletion(metadata, exception);
+                    }
+                });
+                return;
+            } catch (KafkaException | IllegalStateException e) {
+                // Retry if the producer was replaced by a configuration reload meanwhile,
+                // spill if it can't accept records.
+                Producer<byte[], byte[]> current = producers.apply(producerName, shard);
+                if (current == producer) {
+                    logger.debug("Sending record failed, spilling it", e);
+                    break;
+                }
+                producer = current;
+            }
+        }
+        spill(producerName, record, callback);
+    }
+
+    /**
+     * Returns whether new records currently go to the journal.
+     *
+     * @return {@code true} while there is a backlog.
+     */
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    /**
+     * Returns fill ratio of the queue of records waiting to be appended to the journal.
+     *
+     * @return used share of the spill queue in percent.
+     */
+    public int getSpillQueuePercent() {
+        return (int) ((long) pendingSpills.size() * 100 / spillQueueSize);
+    }
+
+    /**
+     * Stops the replay thread, records which fail afterwards are still spilled.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread.
+     */
+    public void stopReplay() throws InterruptedException {
+        replaying = false;
+        LockSupport.unpark(replayer);
+        replayer.join();
+    }
+
+    /**
+     * Stops the replay thread, appends pending spills and closes the journal. Producers have
+     * to be closed before, so their failed sends are spilled as well.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public void shutdown() throws InterruptedException {
+        stopReplay();
+        running = false;
+        spiller.join();
+        journal.close();
+    }
+
+    @Override
+    public void run() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (replaying) {
+            List<SpilledRecord> batch = journal.read(replayBatchSize);
+            if (batch.isEmpty()) {
+                synchronized (journal) {
+                    if (journal.isEmpty() && unappendedSpills.get() == 0 && spilling) {
+                        spilling = false;
+                        logger.info("Spill journal replayed, sending records to Kafka directly");
+                    }
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            if (replay(batch)) {
+                journal.commit(batch.size());
+                backoff = MIN_BACKOFF_MILLIS;
+            } else {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void spill(String producerName, ProducerRecord<byte[], byte[]> record,
+                       Callback callback) {
+        synchronized (journal) {
+            if (!spilling) {
+                spilling = true;
+                logger.warn("Kafka is unavailable, spilling records to the journal");
+            }
+            unappendedSpills.incrementAndGet();
+        }
+        if (!pendingSpills.offer(
+                new PendingSpill(new SpilledRecord(producerName, record), callback))) {
+            unappendedSpills.decrementAndGet();
+            callback.onCompletion(null, JOURNAL_FULL);
+        }
+    }
+
+    private void appendSpills() {
+        while (running || !pendingSpills.isEmpty()) {
+            PendingSpill pending;
+            try {
+                pending = pendingSpills.poll(IDLE_PARK_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (pending == null) {
+                continue;
+            }
+            Exception failure;
+            try {
+                failure = journal.append(pending.record) ? null : JOURNAL_FULL;
+            } catch (RuntimeException e) {
+                logger.error("Failed to spill record to the journal", e);
+                failure = e;
+            } finally {
+                unappendedSpills.decrementAndGet();
+            }
+            try {
+                pending.callback.onCompletion(null, failure);
+            } catch (RuntimeException e) {
+                logger.error("Spill callback failed", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the batch and waits for it, non-retriable failures are logged and skipped.
+     *
+     * @return {@code false} if the batch has to be retried.
+     */
+    private boolean replay(List<SpilledRecord> batch) {
+        List<Future<RecordMetadata>> futures = new ArrayList<>(batch.size());
+        for (SpilledRecord spilledRecord: batch) {
+            Producer<byte[], byte[]> producer = producers.apply(spilledRecord.getProducer(), 0);
+            if (producer == null) {
+                logger.error("Skipping spilled record of unknown producer "
+                        + spilledRecord.getProducer());
+                continue;
+            }
+            Future<RecordMetadata> future;
+            try {
+                future = producer.send(spilledRecord.getRecord());
+            } catch (KafkaException | IllegalStateException e) {
+                return false;
+            }
+            // Sends fail fast while the broker is down, stop at the first one.
+            if (future.isDone() && !isSent(future)) {
+                return false;
+            }
+            futures.add(future);
+        }
+        for (Future<RecordMetadata> future: futures) {
+            if (!isSent(future)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSent(Future<RecordMetadata> future) {
+        try {
+            future.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RetriableException) {
+                return false;
+            }
+            logger.error("Skipping spilled record which can't be sent", e.getCause());
+            return true;
+        }
+    }
+
+    private static final class PendingSpill {
+        private final SpilledRecord record;
+        private final Callback callback;
+
+        private PendingSpill(SpilledRecord record, Callback callback) {
+            this.record = record;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package kz.tim.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import kz.tim.shedding.LoadShedder;
+import kz.tim.shedding.SheddingTier;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry.MetricName;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+/**
+ * Per-table metrics of the trigger, registered in the Cassandra metrics registry and
+ * exposed through JMX as {@code kz.tim:type=Trigger,keyspace=<keyspace>,scope=<table>,name=...}.
+ * Metrics of a table live as long as the node, they are not recreated on schema or
+ * configuration changes.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TableMetrics {
+    private static final ConcurrentMap<String, TableMetrics> tables = new ConcurrentHashMap<>();
+
+    private final Timer processingLatency;
+    private final Timer extractionLatency;
+    private final Timer serializationLatency;
+    private final Timer sendLatency;
+    private final Histogram recordSize;
+    private final Counter partitionUpdates;
+    private final Counter records;
+    private final Counter bytes;
+    private final Counter processingFailures;
+    private final Counter sendFailures;
+    private final Counter shedKeysOnly;
+    private final Counter shedSampledOut;
+    private final Counter shedDropped;
+
+    private TableMetrics(String keyspaceName, String tableName) {
+        processingLatency = Metrics.timer(name(keyspaceName, tableName, "ProcessingLatency"));
+        extractionLatency = Metrics.timer(name(keyspaceName, tableName, "ExtractionLatency"));
+        serializationLatency = Metrics.timer(
+                name(keyspaceName, tableName, "SerializationLatency"));
+        sendLatency = Metrics.timer(name(keyspaceName, tableName, "SendLatency"));
+        recordSize = Metrics.histogram(name(keyspaceName, tableName, "RecordSize"), false);
+        partitionUpdates = Metrics.counter(name(keyspaceName, tableName, "PartitionUpdates"));
+        records = Metrics.counter(name(keyspaceName, tableName, "Records"));
+        bytes = Metrics.counter(name(keyspaceName, tableName, "Bytes"));
+        processingFailures = Metrics.counter(
+                name(keyspaceName, tableName, "ProcessingFailures"));
+        sendFailures = Metrics.counter(name(keyspaceName, tableName, "SendFailures"));
+        shedKeysOnly = Metrics.counter(name(keyspaceName, tableName, "ShedKeysOnly"));
+        shedSampledOut = Metrics.counter(name(keyspaceName, tableName, "ShedSampledOut"));
+        shedDropped = Metrics.counter(name(keyspaceName, tableName, "ShedDropped"));
+    }
+
+    /**
+     * Returns metrics of the given table, registering them on first use.
+     *
+     * @param keyspaceName keyspace name.
+     * @param tableName table name.
+     * @return table metrics.
+     */
+    public static TableMetrics forTable(String keyspaceName, String tableName) {
+        return tables.computeIfAbsent(keyspaceName + "." + tableName,
+            key -> new TableMetrics(keyspaceName, tableName));
+    }
+
+    /**
+     * Records time spent on the whole partition update, from extraction to handing
+     * records over to the producer.
+     *
+     * @param nanos elapsed nanoseconds.
+     */
+    public void updateProcessing(long nanos) {
+        partitionUpdates.inc();
+        processingLatency.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void updateExtraction(long nanos) {
+        extractionLatency.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records serialization of a single record.
+     *
+     * @param nanos elapsed nanoseconds.
+     * @param size serialized record size.
+     */
+    public void updateSerialization(long nanos, int size) {
+        serializationLatency.update(nanos, TimeUnit.NANOSECONDS);
+        recordSize.update(size);
+    }
+
+    /**
+     * Records record acknowledged by Kafka.
+     *
+     * @param nanos nanoseconds elapsed since the record was handed over to the producer.
+     * @param size record value size.
+     */
+    public void updateSend(long nanos, int size) {
+        sendLatency.update(nanos, TimeUnit.NANOSECONDS);
+        records.inc();
+        bytes.inc(size);
+    }
+
+    public void markProcessingFailure() {
+        processingFailures.inc();
+    }
+
+    public void markSendFailure() {
+        sendFailures.inc();
+    }
+
+    /**
+     * Records partition update shed under load.
+     *
+     * @param tier what was done with the update, see {@link LoadShedder#decide}.
+     */
+    public void markShed(SheddingTier tier) {
+        if (tier == SheddingTier.KEYS_ONLY) {
+            shedKeysOnly.inc();
+        } else
+        if (tier == SheddingTier.SAMPLE) {
+            shedSampledOut.inc();
+        } else
+        if (tier == SheddingTier.DROP) {
+            shedDropped.inc();
+        }
+    }
+
+    private static MetricName name(String keyspaceName, String tableName, String name) {
+        return new MetricName(TriggerMetrics.GROUP, TriggerMetrics.TYPE, name,
+                keyspaceName + "." + tableName, TriggerMetrics.GROUP + ":type="
+                + TriggerMetrics.TYPE + ",keyspace=" + keyspaceName + ",scope=" + tableName
+                + ",name=" + name);
+    }
+}
@@ -0,0 +1,50 @@
+package kz.tim.metrics;
+
+import com.codahale.metrics.Gauge;
+import org.apache.cassandra.metrics.CassandraMetricsRegistry.MetricName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+/**
+ * Node-wide gauges of the trigger, exposed through JMX as {@code kz.tim:type=Trigger,name=...}.
+ * Gauges read the state of the given trigger instance, so they are replaced when Cassandra
+ * creates a new instance, e.g. on trigger reload.
+ *
+ * @author Timur Tibeyev.
+ */
+public class TriggerMetrics {
+    static final String GROUP = "kz.tim";
+    static final String TYPE = "Trigger";
+
+    private final List<MetricName> names = new ArrayList<>();
+
+    /**
+     * Registers gauge, replacing gauge of the same name registered by a previous instance.
+     *
+     * @param name metric name.
+     * @param gauge gauge.
+     * @param <T> gauge value type.
+     * @return this.
+     */
+    public <T> TriggerMetrics gauge(String name, Gauge<T> gauge) {
+        MetricName metricName = new MetricName(GROUP, TYPE, name, null,
+                GROUP + ":type=" + TYPE + ",name=" + name);
+        Metrics.remove(metricName);
+        Metrics.register(metricName, gauge);
+        names.add(metricName);
+        return this;
+    }
+
+    /**
+     * Unregisters all gauges.
+     */
+    public void release() {
+        for (MetricName name: names) {
+            Metrics.remove(name);
+        }
+        names.clear();
+    }
+}
@@ -0,0 +1,132 @@
+package kz.tim.models;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable primary key values of a partition or a row, stored in two arrays.
+ * Column names are shared with the extraction plan and sorted, so keys are iterated
+ * in the same order as of a {@link java.util.TreeMap}.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class KeyValues extends AbstractMap<String, Object> {
+    public static final KeyValues EMPTY = new KeyValues(new String[0], new Object[0], 0);
+
+    private final String[] names;
+    private final Object[] values;
+    private final int size;
+
+    /**
+     * Parametrized constructor, arrays are not copied.
+     *
+     * @param names column names sorted by name.
+     * @param values column values.
+     * @param size number of the first columns which are present.
+     */
+    public KeyValues(String[] names, Object[] values, int size) {
+        this.names = names;
+        this.values = values;
+        this.size = size;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public Object getValue(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < size;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (index >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> entry =
+                                new SimpleImmutableEntry<>(names[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof KeyValues)) {
+            return super.equals(other);
+        }
+        KeyValues keyValues = (KeyValues) other;
+        if (size != keyValues.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!names[i].equals(keyValues.names[i])
+                    || !Objects.equals(values[i], keyValues.values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link AbstractMap#hashCode()}, without iterating over entries.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += names[i].hashCode() ^ Objects.hashCode(values[i]);
+        }
+        return hash;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
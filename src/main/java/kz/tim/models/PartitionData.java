@@ -3,10 +3,9 @@ package kz.tim.models;
 import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
 import kz.tim.models.row.RowData;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Map;
 
 /**
  * Class stores all data regarding partition update.
@@ -15,15 +14,16 @@ import java.util.TreeMap;
  */
 public class PartitionData {
     private boolean isDeleted = false;
-    private List<RowData> rows = new LinkedList<>();
-    private List<RangeTombstoneMarkerData> rangeTombstoneMarkers = new LinkedList<>();
-    private SortedMap<String, Object> partitionKeys = new TreeMap<>();
+    private long deletionTimestamp = Long.MIN_VALUE;
+    private List<RowData> rows = new ArrayList<>();
+    private List<RangeTombstoneMarkerData> rangeTombstoneMarkers = new ArrayList<>();
+    private Map<String, Object> partitionKeys = KeyValues.EMPTY;
 
-    public SortedMap<String, Object> getPartitionKeys() {
+    public Map<String, Object> getPartitionKeys() {
         return partitionKeys;
     }
 
-    public void setPartitionKeys(SortedMap<String, Object> partitionKeys) {
+    public void setPartitionKeys(Map<String, Object> partitionKeys) {
         this.partitionKeys = partitionKeys;
     }
 
@@ -50,4 +50,17 @@ public class PartitionData {
     public void setRangeTombstoneMarkers(List<RangeTombstoneMarkerData> rangeTombstoneMarkers) {
         this.rangeTombstoneMarkers = rangeTombstoneMarkers;
     }
+
+    /**
+     * Returns timestamp of the partition deletion.
+     *
+     * @return timestamp in microseconds or {@link Long#MIN_VALUE} if the partition isn't deleted.
+     */
+    public long getDeletionTimestamp() {
+        return deletionTimestamp;
+    }
+
+    public void setDeletionTimestamp(long deletionTimestamp) {
+        this.deletionTimestamp = deletionTimestamp;
+    }
 }
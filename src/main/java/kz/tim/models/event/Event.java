@@ -1,9 +1,13 @@
 package kz.tim.models.event;
 
+import kz.tim.extractors.plan.ExtractionPlan;
 import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
 import kz.tim.models.row.RowData;
+import kz.tim.tracing.Trace;
+import org.apache.cassandra.db.DecoratedKey;
 
-import java.util.SortedMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Class stores all data, which will be produced to Kafka.
@@ -13,11 +17,18 @@ import java.util.SortedMap;
 public class Event {
     private String keyspaceName;
     private String columnFamilyName;
-    private SortedMap<String, Object> partitionKeys;
+    private Map<String, Object> partitionKeys;
     private RowData row;
     private RangeTombstoneMarkerData rangeTombstoneMarker;
+    private List<RowData> rows;
+    private List<RangeTombstoneMarkerData> rangeTombstoneMarkers;
     private boolean isDeleted;
+    private long deletionTimestamp = Long.MIN_VALUE;
     private EventType eventType;
+    private ExtractionPlan plan;
+    private DecoratedKey decoratedKey;
+    private boolean keysOnly;
+    private Trace trace;
 
     public EventType getEventType() {
         return eventType;
@@ -34,7 +45,7 @@ public class Event {
      * @param cfName column family name.
      * @param partitionKeys partition keys.
      */
-    public Event(String ksName, String cfName, SortedMap<String, Object> partitionKeys) {
+    public Event(String ksName, String cfName, Map<String, Object> partitionKeys) {
         this.keyspaceName = ksName;
         this.columnFamilyName = cfName;
         this.partitionKeys = partitionKeys;
@@ -48,6 +59,32 @@ public class Event {
         this.rangeTombstoneMarker = rangeTombstoneMarker;
     }
 
+    /**
+     * Returns rows of the {@link EventType#PARTITION} event.
+     *
+     * @return rows.
+     */
+    public List<RowData> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<RowData> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Returns range tombstone markers of the {@link EventType#PARTITION} event.
+     *
+     * @return range tombstone markers.
+     */
+    public List<RangeTombstoneMarkerData> getRangeTombstoneMarkers() {
+        return rangeTombstoneMarkers;
+    }
+
+    public void setRangeTombstoneMarkers(List<RangeTombstoneMarkerData> rangeTombstoneMarkers) {
+        this.rangeTombstoneMarkers = rangeTombstoneMarkers;
+    }
+
     public String getKeyspaceName() {
         return keyspaceName;
     }
@@ -64,11 +101,11 @@ public class Event {
         this.columnFamilyName = columnFamilyName;
     }
 
-    public SortedMap<String, Object> getPartitionKeys() {
+    public Map<String, Object> getPartitionKeys() {
         return partitionKeys;
     }
 
-    public void setPartitionKeys(SortedMap<String, Object> partitionKeys) {
+    public void setPartitionKeys(Map<String, Object> partitionKeys) {
         this.partitionKeys = partitionKeys;
     }
 
@@ -87,4 +124,71 @@ public class Event {
     public void setDeleted(boolean deleted) {
         isDeleted = deleted;
     }
+
+    /**
+     * Returns plan of the table this event belongs to, used by serializers.
+     *
+     * @return extraction plan, may be {@code null}.
+     */
+    public ExtractionPlan getPlan() {
+        return plan;
+    }
+
+    public void setPlan(ExtractionPlan plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Returns serialized partition key together with its token.
+     *
+     * @return decorated key of the partition update.
+     */
+    public DecoratedKey getDecoratedKey() {
+        return decoratedKey;
+    }
+
+    public void setDecoratedKey(DecoratedKey decoratedKey) {
+        this.decoratedKey = decoratedKey;
+    }
+
+    /**
+     * Returns whether cells were left out of the event under load, see
+     * {@link kz.tim.shedding.SheddingTier#KEYS_ONLY}.
+     *
+     * @return {@code true} if rows carry primary keys and actions only.
+     */
+    public boolean isKeysOnly() {
+        return keysOnly;
+    }
+
+    public void setKeysOnly(boolean keysOnly) {
+        this.keysOnly = keysOnly;
+    }
+
+    /**
+     * Returns timestamp of the partition deletion, set if the table sends timestamps.
+     *
+     * @return timestamp in microseconds or {@link Long#MIN_VALUE}.
+     */
+    public long getDeletionTimestamp() {
+        return deletionTimestamp;
+    }
+
+    public void setDeletionTimestamp(long deletionTimestamp) {
+        this.deletionTimestamp = deletionTimestamp;
+    }
+
+    /**
+     * Returns trace of the partition update the event is sent for, set only while the update
+     * is processed by the worker thread.
+     *
+     * @return trace or {@code null} if the update isn't traced.
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public void setTrace(Trace trace) {
+        this.trace = trace;
+    }
 }
@@ -5,9 +5,11 @@ package kz.tim.models.event;
  * If it is {@link #ROW}, then event is about row update.
  * If it is {@link #RANGE_TOMBSTONE_MARKER}, then event is about
  * row range tombstone marker (see README.MD).
+ * If it is {@link #PARTITION}, then event holds all rows and range tombstone markers
+ * of the partition update.
  *
  * @author Timur Tibeyev.
  */
 public enum EventType {
-    ROW, RANGE_TOMBSTONE_MARKER
+    ROW, RANGE_TOMBSTONE_MARKER, PARTITION
 }
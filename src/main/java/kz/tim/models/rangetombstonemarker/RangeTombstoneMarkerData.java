@@ -10,6 +10,7 @@ import java.util.List;
 public class RangeTombstoneMarkerData {
     private List<RangeTombstoneMarkerBound> bounds;
     private boolean isStart;
+    private long timestamp = Long.MIN_VALUE;
 
     public RangeTombstoneMarkerData(List<RangeTombstoneMarkerBound> bounds, boolean isStart) {
         this.bounds = bounds;
@@ -31,4 +32,18 @@ public class RangeTombstoneMarkerData {
     public void setStart(boolean start) {
         isStart = start;
     }
+
+    /**
+     * Returns timestamp of the range deletion opened or closed by the marker, set if the table
+     * sends timestamps.
+     *
+     * @return timestamp in microseconds or {@link Long#MIN_VALUE}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
 }
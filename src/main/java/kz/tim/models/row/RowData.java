@@ -2,6 +2,7 @@ package kz.tim.models.row;
 
 import kz.tim.models.row.cell.CellData;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
@@ -13,7 +14,10 @@ import java.util.Map;
 public class RowData {
     private RowAction action;
     private Map<String, Object> clusteringKeys;
+    private ByteBuffer[] rawClusteringKeys;
     private List<CellData> affectedCells;
+    private long timestamp = Long.MIN_VALUE;
+    private int ttl;
 
     /**
      * Parametrized constructor.
@@ -44,6 +48,19 @@ public class RowData {
         this.clusteringKeys = clusteringKeys;
     }
 
+    /**
+     * Returns serialized clustering key values, as stored by Cassandra.
+     *
+     * @return clustering key values in schema order.
+     */
+    public ByteBuffer[] getRawClusteringKeys() {
+        return rawClusteringKeys;
+    }
+
+    public void setRawClusteringKeys(ByteBuffer[] rawClusteringKeys) {
+        this.rawClusteringKeys = rawClusteringKeys;
+    }
+
     public List<CellData> getAffectedCells() {
         return affectedCells;
     }
@@ -51,4 +68,31 @@ public class RowData {
     public void setAffectedCells(List<CellData> affectedCells) {
         this.affectedCells = affectedCells;
     }
+
+    /**
+     * Returns the latest write or deletion timestamp of the row, its primary key and cells,
+     * set if the table sends timestamps.
+     *
+     * @return timestamp in microseconds or {@link Long#MIN_VALUE}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns TTL of the row primary key, set by {@code INSERT ... USING TTL}.
+     *
+     * @return TTL in seconds, {@code 0} if the row doesn't expire.
+     */
+    public int getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(int ttl) {
+        this.ttl = ttl;
+    }
 }
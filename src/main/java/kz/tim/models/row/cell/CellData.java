@@ -1,5 +1,7 @@
 package kz.tim.models.row.cell;
 
+import kz.tim.extractors.plan.ColumnPlan;
+
 /**
  * Stores cell modifications.
  *
@@ -11,6 +13,9 @@ public class CellData {
     private CellType type;
     private boolean isDeleted = false;
     private Object deletedItems;
+    private ColumnPlan column;
+    private long timestamp = Long.MIN_VALUE;
+    private int ttl;
 
     public String getName() {
         return name;
@@ -51,4 +56,45 @@ public class CellData {
     public void setDeletedItems(Object deletedItems) {
         this.deletedItems = deletedItems;
     }
+
+    /**
+     * Returns plan of the column this cell belongs to, used by serializers.
+     *
+     * @return column plan, may be {@code null}.
+     */
+    public ColumnPlan getColumn() {
+        return column;
+    }
+
+    public void setColumn(ColumnPlan column) {
+        this.column = column;
+    }
+
+    /**
+     * Returns write or deletion timestamp of the cell, the latest one of the elements for
+     * non-frozen collections and user types. Set if the table sends timestamps.
+     *
+     * @return timestamp in microseconds or {@link Long#MIN_VALUE}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns TTL of the cell, the longest one of the elements for non-frozen collections
+     * and user types.
+     *
+     * @return TTL in seconds, {@code 0} if the cell doesn't expire.
+     */
+    public int getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(int ttl) {
+        this.ttl = ttl;
+    }
 }
@@ -0,0 +1,136 @@
+package kz.tim.models.row.cell;
+
+import kz.tim.extractors.decoders.ValueDecoder;
+import kz.tim.extractors.plan.ColumnPlan;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Elements added to or removed from a non-frozen collection by a row update. Serialized set
+ * elements and map keys (the cell paths) and list elements and map values (the cell values)
+ * are kept in arrays and written by the serializers straight from them, so appending thousands
+ * of elements doesn't box every element into its own object.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class CollectionDelta {
+    private final CellType type;
+    private final ValueDecoder keysDecoder;
+    private final ValueDecoder valuesDecoder;
+    private final ByteBuffer[] keys;
+    private final ByteBuffer[] values;
+    private int size;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param column plan of the {@code LIST}, {@code SET} or {@code MAP} column.
+     * @param capacity maximum number of elements.
+     */
+    public CollectionDelta(ColumnPlan column, int capacity) {
+        this.type = column.getCellType();
+        this.keysDecoder = column.getKeysDecoder();
+        this.valuesDecoder = column.getValueDecoder();
+        this.keys = type == CellType.LIST ? null : new ByteBuffer[capacity];
+        this.values = type == CellType.SET ? null : new ByteBuffer[capacity];
+    }
+
+    /**
+     * Adds element, arguments which are not used by the collection type are ignored.
+     *
+     * @param key set element or map key.
+     * @param value list element or map value, {@code null} for removed map entries.
+     */
+    public void add(ByteBuffer key, ByteBuffer value) {
+        if (keys != null) {
+            keys[size] = key;
+        }
+        if (values != null) {
+            values[size] = value;
+        }
+        size++;
+    }
+
+    public CellType getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns serialized set element or map key.
+     *
+     * @param index element index.
+     * @return element bytes.
+     */
+    public ByteBuffer getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns serialized list element or map value.
+     *
+     * @param index element index.
+     * @return element bytes, {@code null} for removed map entries.
+     */
+    public ByteBuffer getValue(int index) {
+        return values[index];
+    }
+
+    public ValueDecoder getKeysDecoder() {
+        return keysDecoder;
+    }
+
+    public ValueDecoder getValuesDecoder() {
+        return valuesDecoder;
+    }
+
+    /**
+     * Converts elements to a list, set or map of {@link LazyValue}s, used where collections
+     * are merged.
+     *
+     * @return collection of the elements.
+     */
+    public Object toCollection() {
+        if (type == CellType.MAP) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                map.put(lazyValue(keys[i], keysDecoder), lazyValue(values[i], valuesDecoder));
+            }
+            return map;
+        }
+        Collection<Object> collection = type == CellType.SET
+                ? new LinkedHashSet<>() : new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            collection.add(type == CellType.SET
+                    ? lazyValue(keys[i], keysDecoder) : lazyValue(values[i], valuesDecoder));
+        }
+        return collection;
+    }
+
+    /**
+     * Returns the value itself or its elements as a collection if it is a delta.
+     *
+     * @param value cell value.
+     * @return collection or the value.
+     */
+    public static Object toCollection(Object value) {
+        return value instanceof CollectionDelta ? ((CollectionDelta) value).toCollection() : value;
+    }
+
+    private static LazyValue lazyValue(ByteBuffer bytes, ValueDecoder decoder) {
+        return bytes == null ? null : new LazyValue(bytes, decoder);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(toCollection());
+    }
+}
@@ -0,0 +1,67 @@
+package kz.tim.models.row.cell;
+
+import kz.tim.extractors.decoders.ValueDecoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serialized cell value together with its decoder. Values are decoded only when they are
+ * written by a serializer, so values which are never sent (e.g. overwritten while coalescing)
+ * are never decoded, and common types are written straight from the serialized bytes.
+ * Values are equal if their serialized bytes are equal, which matches Cassandra's own
+ * identity of set elements and map keys.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class LazyValue {
+    private final ByteBuffer bytes;
+    private final ValueDecoder decoder;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param bytes serialized value.
+     * @param decoder decoder of the value.
+     */
+    public LazyValue(ByteBuffer bytes, ValueDecoder decoder) {
+        this.bytes = bytes;
+        this.decoder = decoder;
+    }
+
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+
+    public ValueDecoder getDecoder() {
+        return decoder;
+    }
+
+    public Object decode() {
+        return decoder.decode(bytes);
+    }
+
+    /**
+     * Returns the value itself or the decoded value if it is lazy.
+     *
+     * @param value cell value.
+     * @return decoded value.
+     */
+    public static Object decode(Object value) {
+        return value instanceof LazyValue ? ((LazyValue) value).decode() : value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LazyValue && bytes.equals(((LazyValue) other).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return bytes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(decode());
+    }
+}
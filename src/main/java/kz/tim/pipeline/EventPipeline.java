@@ -0,0 +1,156 @@
+package kz.tim.pipeline;
+
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Hands partition updates off the Cassandra write path to dedicated worker threads,
+ * which run extraction, serialization and sending. Updates of the same partition always
+ * go to the same worker, so their order is preserved. Updates submitted once the pipeline is
+ * stopped are dropped, updates submitted before are processed.
+ *
+ * @author Timur Tibeyev.
+ */
+public class EventPipeline {
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long DROP_WARNING_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final Logger logger = Logger.getLogger(EventPipeline.class);
+    private final PipelineLane[] lanes;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong droppedUpdates = new AtomicLong();
+    private final AtomicLong lastDropWarning = new AtomicLong();
+    // Held for reading while an update is enqueued, for writing while the pipeline stops.
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private boolean stopped;
+
+    /**
+     * Parametrized constructor, starts worker threads.
+     *
+     * @param threads number of worker threads.
+     * @param queueCapacity total number of updates which may wait for the workers.
+     * @param overflowPolicy behaviour when the queue of the worker is full.
+     * @param handler processes partition updates on the worker threads.
+     */
+    public EventPipeline(int threads, int queueCapacity, OverflowPolicy overflowPolicy,
+                         Consumer<Partition> handler) {
+        this.overflowPolicy = overflowPolicy;
+        int laneCapacity = Math.max(1, queueCapacity / threads);
+        lanes = new PipelineLane[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new PipelineLane("cassandra-trigger-worker-" + i, laneCapacity, handler);
+        }
+    }
+
+    /**
+     * Enqueues partition update, applying the overflow policy if the worker is saturated.
+     *
+     * @param update partition update.
+     * @return {@code false} if the update was dropped.
+     */
+    public boolean submit(Partition update) {
+        PipelineLane lane = lanes[Math.floorMod(update.partitionKey().getToken().hashCode(),
+                lanes.length)];
+        stopLock.readLock().lock();
+        try {
+            if (stopped) {
+                onDropped("Trigger is stopped");
+                return false;
+            }
+            if (lane.offer(update)) {
+                return true;
+            }
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                while (!lane.offer(update)) {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                return true;
+            }
+        } finally {
+            stopLock.readLock().unlock();
+        }
+        onDropped("Trigger queue is full");
+        return false;
+    }
+
+    /**
+     * Returns number of updates waiting for the workers.
+     *
+     * @return queued updates.
+     */
+    public int queued() {
+        int queued = 0;
+        for (PipelineLane lane: lanes) {
+            queued += lane.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Returns total capacity of the worker queues.
+     *
+     * @return capacity.
+     */
+    public int capacity() {
+        int capacity = 0;
+        for (PipelineLane lane: lanes) {
+            capacity += lane.capacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns fill ratio of the fullest worker queue, writes wait or updates are dropped
+     * as soon as any queue is full.
+     *
+     * @return used share of the queue in percent.
+     */
+    public int fillPercent() {
+        int percent = 0;
+        for (PipelineLane lane: lanes) {
+            percent = Math.max(percent, lane.size() * 100 / lane.capacity());
+        }
+        return percent;
+    }
+
+    public long getDroppedUpdates() {
+        return droppedUpdates.get();
+    }
+
+    /**
+     * Stops workers after the queued updates are processed and waits for them.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void shutdown() throws InterruptedException {
+        stopLock.writeLock().lock();
+        try {
+            stopped = true;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        for (PipelineLane lane: lanes) {
+            lane.shutdown();
+        }
+        for (PipelineLane lane: lanes) {
+            lane.awaitTermination();
+        }
+    }
+
+    private void onDropped(String reason) {
+        long dropped = droppedUpdates.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long last = lastDropWarning.get();
+        if (now - last >= DROP_WARNING_INTERVAL_MILLIS
+                && lastDropWarning.compareAndSet(last, now)) {
+            logger.warn(reason + ", partition updates are dropped, total dropped: " + dropped);
+        }
+    }
+}
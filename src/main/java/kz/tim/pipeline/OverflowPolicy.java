@@ -0,0 +1,12 @@
+package kz.tim.pipeline;
+
+/**
+ * What {@link EventPipeline} does with a partition update when the worker queue is full.
+ * If it is {@link #BLOCK}, then the write path waits until the worker frees space.
+ * If it is {@link #DROP}, then the update is not published and only counted.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum OverflowPolicy {
+    BLOCK, DROP
+}
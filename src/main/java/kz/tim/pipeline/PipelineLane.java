@@ -0,0 +1,117 @@
+package kz.tim.pipeline;
+
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Single worker thread of the {@link EventPipeline} together with its bounded queue.
+ * Offering never takes a lock: capacity is reserved with a CAS on the size counter
+ * and the worker is unparked only when it is idle.
+ *
+ * @author Timur Tibeyev.
+ */
+public class PipelineLane implements Runnable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Logger logger = Logger.getLogger(PipelineLane.class);
+    private final Queue<Partition> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+    private final Consumer<Partition> handler;
+    private final Thread thread;
+    private volatile boolean idle;
+    private volatile boolean running = true;
+
+    /**
+     * Parametrized constructor, starts the worker thread.
+     *
+     * @param name worker thread name.
+     * @param capacity maximum number of queued updates.
+     * @param handler processes partition updates on the worker thread.
+     */
+    public PipelineLane(String name, int capacity, Consumer<Partition> handler) {
+        this.capacity = capacity;
+        this.handler = handler;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Enqueues partition update if there is free capacity.
+     *
+     * @param update partition update.
+     * @return {@code false} if the queue is full.
+     */
+    public boolean offer(Partition update) {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+
+        queue.offer(update);
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Stops the worker after the already queued updates are processed.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits for the worker thread to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitTermination() throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Partition update = queue.poll();
+            if (update == null) {
+                if (!running) {
+                    return;
+                }
+                idle = true;
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            size.decrementAndGet();
+            try {
+                handler.accept(update);
+            } catch (Exception e) {
+                logger.error("Processing partition update failed", e);
+            }
+        }
+    }
+}
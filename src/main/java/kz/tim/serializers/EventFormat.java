@@ -0,0 +1,14 @@
+package kz.tim.serializers;
+
+/**
+ * Encoding of the record values.
+ * {@link #JSON} is self-describing json (see README.MD),
+ * {@link #BINARY} is compact positional encoding which refers to table schema by id,
+ * {@link #COLUMNAR} is binary encoding where rows of a table are sent in batches
+ * written column by column.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum EventFormat {
+    JSON, BINARY, COLUMNAR
+}
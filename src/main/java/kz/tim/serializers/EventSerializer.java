@@ -0,0 +1,233 @@
+package kz.tim.serializers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import kz.tim.models.event.Event;
+import kz.tim.models.event.EventType;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerBound;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
+import kz.tim.models.row.RowData;
+import kz.tim.models.row.cell.CellData;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes {@link Event} as json directly with a streaming {@link JsonGenerator}.
+ * Output is written into a per-thread buffer that is reused between records and
+ * field names are pre-encoded, so the only allocation per record is the resulting array.
+ *
+ * @author Timur Tibeyev.
+ */
+public class EventSerializer implements Serializer<Event> {
+    private static final JsonFactory factory = new JsonFactory();
+    private static final ThreadLocal<ByteArrayBuilder> buffers =
+            ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private static final SerializableString KEYSPACE_NAME = new SerializedString("keyspaceName");
+    private static final SerializableString COLUMN_FAMILY_NAME =
+            new SerializedString("columnFamilyName");
+    private static final SerializableString PARTITION_KEYS = new SerializedString("partitionKeys");
+    private static final SerializableString ROW = new SerializedString("row");
+    private static final SerializableString RANGE_TOMBSTONE_MARKER =
+            new SerializedString("rangeTombstoneMarker");
+    private static final SerializableString ROWS = new SerializedString("rows");
+    private static final SerializableString RANGE_TOMBSTONE_MARKERS =
+            new SerializedString("rangeTombstoneMarkers");
+    private static final SerializableString EVENT_TYPE = new SerializedString("eventType");
+    private static final SerializableString DELETED = new SerializedString("deleted");
+    private static final SerializableString KEYS_ONLY = new SerializedString("keysOnly");
+    private static final SerializableString ACTION = new SerializedString("action");
+    private static final SerializableString CLUSTERING_KEYS =
+            new SerializedString("clusteringKeys");
+    private static final SerializableString AFFECTED_CELLS = new SerializedString("affectedCells");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString VALUE = new SerializedString("value");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString DELETED_ITEMS = new SerializedString("deletedItems");
+    private static final SerializableString BOUNDS = new SerializedString("bounds");
+    private static final SerializableString CLUSTERING_KEY = new SerializedString("clusteringKey");
+    private static final SerializableString INCLUSIVE = new SerializedString("inclusive");
+    private static final SerializableString START = new SerializedString("start");
+    private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializableString TTL = new SerializedString("ttl");
+    private static final SerializableString DELETION_TIMESTAMP =
+            new SerializedString("deletionTimestamp");
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public byte[] serialize(String topic, Event event) {
+        if (event == null) {
+            return null;
+        }
+        ByteArrayBuilder buffer = buffers.get();
+        buffer.reset();
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            writeEvent(generator, event);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize event", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void writeEvent(JsonGenerator generator, Event event) throws IOException {
+        boolean timestamps = event.getPlan() != null
+                && event.getPlan().getTableConfig().isIncludeTimestamps();
+        generator.writeStartObject();
+        generator.writeFieldName(KEYSPACE_NAME);
+        if (event.getPlan() != null) {
+            generator.writeString(event.getPlan().getEncodedKeyspaceName());
+        } else {
+            generator.writeString(event.getKeyspaceName());
+        }
+        generator.writeFieldName(COLUMN_FAMILY_NAME);
+        if (event.getPlan() != null) {
+            generator.writeString(event.getPlan().getEncodedTableName());
+        } else {
+            generator.writeString(event.getColumnFamilyName());
+        }
+        generator.writeFieldName(PARTITION_KEYS);
+        JsonValueWriter.writeMap(generator, event.getPartitionKeys());
+
+        if (event.getEventType() == EventType.PARTITION) {
+            writePartitionContent(generator, event, timestamps);
+        } else {
+            generator.writeFieldName(ROW);
+            if (event.getRow() == null) {
+                generator.writeNull();
+            } else {
+                writeRow(generator, event.getRow(), timestamps);
+            }
+            generator.writeFieldName(RANGE_TOMBSTONE_MARKER);
+            if (event.getRangeTombstoneMarker() == null) {
+                generator.writeNull();
+            } else {
+                writeRangeTombstoneMarker(generator, event.getRangeTombstoneMarker(),
+                        timestamps);
+            }
+        }
+        generator.writeFieldName(EVENT_TYPE);
+        if (event.getEventType() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(event.getEventType().name());
+        }
+        generator.writeFieldName(DELETED);
+        generator.writeBoolean(event.isDeleted());
+        if (timestamps && event.isDeleted()) {
+            generator.writeFieldName(DELETION_TIMESTAMP);
+            generator.writeNumber(event.getDeletionTimestamp());
+        }
+        if (event.isKeysOnly()) {
+            generator.writeFieldName(KEYS_ONLY);
+            generator.writeBoolean(true);
+        }
+        generator.writeEndObject();
+    }
+
+    private void writePartitionContent(JsonGenerator generator, Event event, boolean timestamps)
+            throws IOException {
+        generator.writeFieldName(ROWS);
+        generator.writeStartArray();
+        if (event.getRows() != null) {
+            for (RowData row: event.getRows()) {
+                writeRow(generator, row, timestamps);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeFieldName(RANGE_TOMBSTONE_MARKERS);
+        generator.writeStartArray();
+        if (event.getRangeTombstoneMarkers() != null) {
+            for (RangeTombstoneMarkerData marker: event.getRangeTombstoneMarkers()) {
+                writeRangeTombstoneMarker(generator, marker, timestamps);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeRow(JsonGenerator generator, RowData row, boolean timestamps)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ACTION);
+        generator.writeString(row.getAction().name());
+        generator.writeFieldName(CLUSTERING_KEYS);
+        JsonValueWriter.writeMap(generator, row.getClusteringKeys());
+        generator.writeFieldName(AFFECTED_CELLS);
+        generator.writeStartArray();
+        for (CellData cell: row.getAffectedCells()) {
+            writeCell(generator, cell, timestamps);
+        }
+        generator.writeEndArray();
+        if (timestamps) {
+            writeTimestamp(generator, row.getTimestamp(), row.getTtl());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeCell(JsonGenerator generator, CellData cell, boolean timestamps)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(NAME);
+        if (cell.getColumn() != null) {
+            generator.writeString(cell.getColumn().getEncodedName());
+        } else {
+            generator.writeString(cell.getName());
+        }
+        generator.writeFieldName(VALUE);
+        JsonValueWriter.write(generator, cell.getValue());
+        generator.writeFieldName(TYPE);
+        generator.writeString(cell.getType().name());
+        generator.writeFieldName(DELETED_ITEMS);
+        JsonValueWriter.write(generator, cell.getDeletedItems());
+        generator.writeFieldName(DELETED);
+        generator.writeBoolean(cell.isDeleted());
+        if (timestamps) {
+            writeTimestamp(generator, cell.getTimestamp(), cell.getTtl());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeRangeTombstoneMarker(JsonGenerator generator,
+                                           RangeTombstoneMarkerData marker, boolean timestamps)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(BOUNDS);
+        generator.writeStartArray();
+        for (RangeTombstoneMarkerBound bound: marker.getBounds()) {
+            generator.writeStartObject();
+            generator.writeFieldName(CLUSTERING_KEY);
+            JsonValueWriter.writeMap(generator, bound.getClusteringKey());
+            generator.writeFieldName(INCLUSIVE);
+            generator.writeBoolean(bound.isInclusive());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeFieldName(START);
+        generator.writeBoolean(marker.isStart());
+        if (timestamps) {
+            generator.writeFieldName(TIMESTAMP);
+            generator.writeNumber(marker.getTimestamp());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeTimestamp(JsonGenerator generator, long timestamp, int ttl)
+            throws IOException {
+        generator.writeFieldName(TIMESTAMP);
+        generator.writeNumber(timestamp);
+        generator.writeFieldName(TTL);
+        generator.writeNumber(ttl);
+    }
+}
@@ -0,0 +1,233 @@
+package kz.tim.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import kz.tim.extractors.decoders.RawDecoder;
+import kz.tim.extractors.decoders.SimpleDecoder;
+import kz.tim.extractors.decoders.ValueDecoder;
+import kz.tim.models.KeyValues;
+import kz.tim.models.row.cell.CellType;
+import kz.tim.models.row.cell.CollectionDelta;
+import kz.tim.models.row.cell.LazyValue;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.BooleanType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes decoded cell, partition key and clustering key values with {@link JsonGenerator}.
+ * Values are written with primitive generator methods, no bean introspection is involved.
+ * {@link LazyValue}s of common types are written straight from their serialized bytes.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class JsonValueWriter {
+
+    private JsonValueWriter() {
+    }
+
+    /**
+     * Writes the given value.
+     *
+     * @param generator json generator.
+     * @param value decoded value.
+     * @throws IOException if writing failed.
+     */
+    public static void write(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else
+        if (value instanceof LazyValue) {
+            writeLazy(generator, (LazyValue) value);
+        } else
+        if (value instanceof CollectionDelta) {
+            writeDelta(generator, (CollectionDelta) value);
+        } else
+        if (value instanceof String) {
+            generator.writeString((String) value);
+        } else
+        if (value instanceof Integer) {
+            generator.writeNumber(((Integer) value).intValue());
+        } else
+        if (value instanceof Long) {
+            generator.writeNumber(((Long) value).longValue());
+        } else
+        if (value instanceof Boolean) {
+            generator.writeBoolean(((Boolean) value).booleanValue());
+        } else
+        if (value instanceof Double) {
+            generator.writeNumber(((Double) value).doubleValue());
+        } else
+        if (value instanceof Float) {
+            generator.writeNumber(((Float) value).floatValue());
+        } else
+        if (value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).intValue());
+        } else
+        if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else
+        if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else
+        if (value instanceof UUID) {
+            generator.writeString(value.toString());
+        } else
+        if (value instanceof Date) {
+            generator.writeNumber(((Date) value).getTime());
+        } else
+        if (value instanceof ByteBuffer) {
+            writeBytes(generator, (ByteBuffer) value);
+        } else
+        if (value instanceof InetAddress) {
+            generator.writeString(((InetAddress) value).getHostAddress());
+        } else
+        if (value instanceof Map) {
+            writeMap(generator, (Map<?, ?>) value);
+        } else
+        if (value instanceof Collection) {
+            writeCollection(generator, (Collection<?>) value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * Writes map as json object, keys are converted to strings.
+     *
+     * @param generator json generator.
+     * @param map map to write.
+     * @throws IOException if writing failed.
+     */
+    public static void writeMap(JsonGenerator generator, Map<?, ?> map) throws IOException {
+        generator.writeStartObject();
+        if (map instanceof KeyValues) {
+            KeyValues keyValues = (KeyValues) map;
+            for (int i = 0; i < keyValues.size(); i++) {
+                generator.writeFieldName(keyValues.getName(i));
+                write(generator, keyValues.getValue(i));
+            }
+            generator.writeEndObject();
+            return;
+        }
+        for (Map.Entry<?, ?> entry: map.entrySet()) {
+            generator.writeFieldName(fieldName(entry.getKey()));
+            write(generator, entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static String fieldName(Object key) {
+        Object value = LazyValue.decode(key);
+        if (value instanceof ByteBuffer) {
+            return Base64.getEncoder().encodeToString(
+                    ByteBufferUtil.getArray((ByteBuffer) value));
+        }
+        return String.valueOf(value);
+    }
+
+    private static void writeLazy(JsonGenerator generator, LazyValue value) throws IOException {
+        writeLazy(generator, value.getBytes(), value.getDecoder());
+    }
+
+    private static void writeLazy(JsonGenerator generator, ByteBuffer bytes, ValueDecoder decoder)
+            throws IOException {
+        if (bytes == null) {
+            generator.writeNull();
+            return;
+        }
+        if (decoder instanceof RawDecoder) {
+            writeBytes(generator, bytes);
+            return;
+        }
+        if (decoder instanceof SimpleDecoder && bytes.hasRemaining()) {
+            AbstractType type = ((SimpleDecoder) decoder).getType();
+            int position = bytes.position();
+            if (type == UTF8Type.instance && bytes.hasArray()
+                    && generator instanceof UTF8JsonGenerator) {
+                generator.writeUTF8String(bytes.array(), bytes.arrayOffset() + position,
+                        bytes.remaining());
+                return;
+            }
+            if (type == Int32Type.instance) {
+                generator.writeNumber(bytes.getInt(position));
+                return;
+            }
+            if (type == LongType.instance || type == TimestampType.instance) {
+                generator.writeNumber(bytes.getLong(position));
+                return;
+            }
+            if (type == DoubleType.instance) {
+                generator.writeNumber(bytes.getDouble(position));
+                return;
+            }
+            if (type == BooleanType.instance) {
+                generator.writeBoolean(bytes.get(position) != 0);
+                return;
+            }
+        }
+        write(generator, decoder.decode(bytes));
+    }
+
+    /**
+     * Writes set and list elements as json array and map entries as json object, straight
+     * from the serialized elements.
+     */
+    private static void writeDelta(JsonGenerator generator, CollectionDelta delta)
+            throws IOException {
+        if (delta.getType() == CellType.MAP) {
+            generator.writeStartObject();
+            for (int i = 0; i < delta.size(); i++) {
+                generator.writeFieldName(
+                        fieldName(delta.getKeysDecoder().decode(delta.getKey(i))));
+                writeLazy(generator, delta.getValue(i), delta.getValuesDecoder());
+            }
+            generator.writeEndObject();
+            return;
+        }
+        generator.writeStartArray();
+        for (int i = 0; i < delta.size(); i++) {
+            if (delta.getType() == CellType.SET) {
+                writeLazy(generator, delta.getKey(i), delta.getKeysDecoder());
+            } else {
+                writeLazy(generator, delta.getValue(i), delta.getValuesDecoder());
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeCollection(JsonGenerator generator, Collection<?> collection)
+            throws IOException {
+        generator.writeStartArray();
+        for (Object element: collection) {
+            write(generator, element);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeBytes(JsonGenerator generator, ByteBuffer value) throws IOException {
+        if (value.hasArray()) {
+            generator.writeBinary(value.array(), value.arrayOffset() + value.position(),
+                    value.remaining());
+        } else {
+            byte[] bytes = new byte[value.remaining()];
+            value.duplicate().get(bytes);
+            generator.writeBinary(bytes);
+        }
+    }
+}
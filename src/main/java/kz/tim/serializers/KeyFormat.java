@@ -0,0 +1,15 @@
+package kz.tim.serializers;
+
+/**
+ * Encoding of the record keys.
+ * {@link #STRING} joins partition key values with {@code #} and appends clustering key values
+ * of row events after {@code $} (see README.MD),
+ * {@link #BINARY} is the partition key serialized the same way Cassandra hashes it,
+ * {@link #BINARY_CLUSTERING} is the length-prefixed partition key followed by length-prefixed
+ * clustering key values of row events.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum KeyFormat {
+    STRING, BINARY, BINARY_CLUSTERING
+}
@@ -0,0 +1,110 @@
+package kz.tim.serializers;
+
+import kz.tim.models.event.Event;
+import kz.tim.models.row.RowData;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Builds record keys in the given {@link KeyFormat}. Binary keys are copied from the
+ * serialized partition and clustering keys of the update, without decoding them.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class RecordKeys {
+    private static final String KEY_SEPARATOR = "#";
+    private static final String PARTITION_AND_CLUSTERING_KEYS_SEPARATOR = "$";
+
+    private RecordKeys() {
+    }
+
+    /**
+     * Returns key of the partition level records: deleted partition, range tombstone markers
+     * and aggregated partition updates.
+     *
+     * @param format key format.
+     * @param event event of the partition update.
+     * @return record key.
+     */
+    public static byte[] partitionKey(KeyFormat format, Event event) {
+        switch (format) {
+            case BINARY:
+                return ByteBufferUtil.getArray(event.getDecoratedKey().getKey());
+            case BINARY_CLUSTERING:
+                return composite(event.getDecoratedKey().getKey(), null);
+            default:
+                return join(event.getPartitionKeys()).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns key of the row record. Binary partition key is shared by all rows of the
+     * partition update, so it can be passed in to avoid copying it for every row.
+     *
+     * @param format key format.
+     * @param event event of the partition update.
+     * @param row row.
+     * @param partitionKey result of {@link #partitionKey(KeyFormat, Event)}.
+     * @return record key.
+     */
+    public static byte[] rowKey(KeyFormat format, Event event, RowData row, byte[] partitionKey) {
+        switch (format) {
+            case BINARY:
+                return partitionKey;
+            case BINARY_CLUSTERING:
+                return composite(event.getDecoratedKey().getKey(), row.getRawClusteringKeys());
+            default:
+                String key = join(event.getPartitionKeys());
+                if (!row.getClusteringKeys().isEmpty()) {
+                    key += PARTITION_AND_CLUSTERING_KEYS_SEPARATOR
+                            + join(row.getClusteringKeys());
+                }
+                return key.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes every component as unsigned short length followed by its bytes.
+     */
+    private static byte[] composite(ByteBuffer partitionKey, ByteBuffer[] clustering) {
+        int size = 2 + partitionKey.remaining();
+        if (clustering != null) {
+            for (ByteBuffer value: clustering) {
+                size += 2 + (value == null ? 0 : value.remaining());
+            }
+        }
+        ByteBuffer result = ByteBuffer.allocate(size);
+        putComponent(result, partitionKey);
+        if (clustering != null) {
+            for (ByteBuffer value: clustering) {
+                putComponent(result, value);
+            }
+        }
+        return result.array();
+    }
+
+    private static void putComponent(ByteBuffer result, ByteBuffer value) {
+        if (value == null) {
+            result.putShort((short) 0);
+            return;
+        }
+        result.putShort((short) value.remaining());
+        result.put(value.duplicate());
+    }
+
+    private static String join(Map<String, Object> map) {
+        StringBuilder builder = new StringBuilder();
+        boolean first = true;
+        for (Object value: map.values()) {
+            if (!first) {
+                builder.append(KEY_SEPARATOR);
+            }
+            builder.append(value);
+            first = false;
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package kz.tim.serializers;
+
+/**
+ * Representation of the cell values.
+ * {@link #DECODED} values are decoded into json / binary values of their CQL type,
+ * {@link #RAW} values are sent as their native CQL serialized bytes without decoding,
+ * as base64 strings in json and as blobs in the binary format.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum ValueFormat {
+    DECODED, RAW
+}
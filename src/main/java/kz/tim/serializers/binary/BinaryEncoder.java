@@ -0,0 +1,149 @@
+package kz.tim.serializers.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with helpers for the binary event format.
+ * Instances are reused between records by the owning thread.
+ *
+ * @author Timur Tibeyev.
+ */
+public class BinaryEncoder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    public void reset() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns copy of the written bytes.
+     *
+     * @return written bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Writes single byte.
+     *
+     * @param value byte to write.
+     */
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Writes boolean as a single byte.
+     *
+     * @param value boolean to write.
+     */
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes unsigned variable-length integer (LEB128).
+     *
+     * @param value non-negative value.
+     */
+    public void writeUnsignedVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Writes signed variable-length integer using zig-zag encoding.
+     *
+     * @param value value to write.
+     */
+    public void writeVarLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes fixed-length big-endian long.
+     *
+     * @param value value to write.
+     */
+    public void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Writes fixed-length big-endian int.
+     *
+     * @param value value to write.
+     */
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Writes length-prefixed byte array.
+     *
+     * @param bytes bytes to write.
+     */
+    public void writeBytes(byte[] bytes) {
+        writeUnsignedVarLong(bytes.length);
+        writeRaw(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes length-prefixed content of the buffer, buffer position is not changed.
+     *
+     * @param bytes bytes to write.
+     */
+    public void writeBytes(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        writeUnsignedVarLong(length);
+        if (bytes.hasArray()) {
+            writeRaw(bytes.array(), bytes.arrayOffset() + bytes.position(), length);
+            return;
+        }
+        ensureCapacity(length);
+        bytes.duplicate().get(buffer, size, length);
+        size += length;
+    }
+
+    /**
+     * Writes length-prefixed UTF-8 string.
+     *
+     * @param value string to write.
+     */
+    public void writeString(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeRaw(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
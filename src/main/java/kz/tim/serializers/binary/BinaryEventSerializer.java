@@ -0,0 +1,187 @@
+package kz.tim.serializers.binary;
+
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.event.Event;
+import kz.tim.models.event.EventType;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerBound;
+import kz.tim.models.rangetombstonemarker.RangeTombstoneMarkerData;
+import kz.tim.models.row.RowData;
+import kz.tim.models.row.cell.CellData;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link Event} in the compact binary format (see README.MD).
+ * Keyspace, table and column names are not written, events refer to the table schema
+ * stored in {@link SchemaRegistry} by id and all keys and cells are positional.
+ *
+ * @author Timur Tibeyev.
+ */
+public class BinaryEventSerializer implements Serializer<Event> {
+    public static final int MAGIC = 0xCE;
+    public static final int VERSION = 1;
+
+    private static final int EVENT_ROW = 0;
+    private static final int EVENT_RANGE_TOMBSTONE_MARKER = 1;
+    private static final int EVENT_PARTITION_DELETED = 2;
+    private static final int EVENT_PARTITION = 3;
+    static final int EVENT_ROW_BATCH = 4;
+
+    private static final int PARTITION_DELETED = 1;
+    static final int KEYS_ONLY = 1 << 1;
+    static final int TIMESTAMPS = 1 << 2;
+
+    private static final int CELL_DELETED = 1;
+    private static final int CELL_HAS_VALUE = 1 << 1;
+    private static final int CELL_HAS_DELETED_ITEMS = 1 << 2;
+
+    private static final ThreadLocal<BinaryEncoder> encoders =
+            ThreadLocal.withInitial(BinaryEncoder::new);
+
+    private final SchemaRegistry schemaRegistry;
+
+    public BinaryEventSerializer(SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public byte[] serialize(String topic, Event event) {
+        if (event == null) {
+            return null;
+        }
+        ExtractionPlan plan = event.getPlan();
+        if (plan == null) {
+            throw new SerializationException("Binary format requires table plan of the event");
+        }
+        BinaryEncoder encoder = encoders.get();
+        encoder.reset();
+        encoder.writeByte(MAGIC);
+        encoder.writeByte(VERSION);
+        encoder.writeLong(schemaRegistry.register(plan));
+        encoder.writeByte(eventType(event));
+        boolean timestamps = plan.getTableConfig().isIncludeTimestamps();
+        encoder.writeByte((event.isDeleted() ? PARTITION_DELETED : 0)
+                | (event.isKeysOnly() ? KEYS_ONLY : 0) | (timestamps ? TIMESTAMPS : 0));
+        writeKeys(encoder, plan.getPartitionKeyNames(), event.getPartitionKeys());
+        if (timestamps && event.isDeleted()) {
+            encoder.writeVarLong(event.getDeletionTimestamp());
+        }
+
+        if (event.getEventType() == EventType.ROW && event.getRow() != null) {
+            writeRow(encoder, plan, event.getRow());
+        } else
+        if (event.getEventType() == EventType.RANGE_TOMBSTONE_MARKER
+                && event.getRangeTombstoneMarker() != null) {
+            writeRangeTombstoneMarker(encoder, plan, event.getRangeTombstoneMarker());
+        } else
+        if (event.getEventType() == EventType.PARTITION) {
+            writePartitionContent(encoder, plan, event);
+        }
+        return encoder.toByteArray();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private int eventType(Event event) {
+        if (event.getEventType() == EventType.ROW) {
+            return EVENT_ROW;
+        }
+        if (event.getEventType() == EventType.RANGE_TOMBSTONE_MARKER) {
+            return EVENT_RANGE_TOMBSTONE_MARKER;
+        }
+        if (event.getEventType() == EventType.PARTITION) {
+            return EVENT_PARTITION;
+        }
+        return EVENT_PARTITION_DELETED;
+    }
+
+    private void writeKeys(BinaryEncoder encoder, String[] names, Map<String, Object> keys) {
+        int count = 0;
+        while (count < names.length && keys.containsKey(names[count])) {
+            count++;
+        }
+        encoder.writeUnsignedVarLong(count);
+        for (int i = 0; i < count; i++) {
+            BinaryValueWriter.write(encoder, keys.get(names[i]));
+        }
+    }
+
+    private void writePartitionContent(BinaryEncoder encoder, ExtractionPlan plan, Event event) {
+        List<RowData> rows = event.getRows() == null
+                ? Collections.emptyList() : event.getRows();
+        encoder.writeUnsignedVarLong(rows.size());
+        for (RowData row: rows) {
+            writeRow(encoder, plan, row);
+        }
+        List<RangeTombstoneMarkerData> markers = event.getRangeTombstoneMarkers() == null
+                ? Collections.emptyList() : event.getRangeTombstoneMarkers();
+        encoder.writeUnsignedVarLong(markers.size());
+        for (RangeTombstoneMarkerData marker: markers) {
+            writeRangeTombstoneMarker(encoder, plan, marker);
+        }
+    }
+
+    private void writeRow(BinaryEncoder encoder, ExtractionPlan plan, RowData row) {
+        encoder.writeByte(row.getAction().ordinal());
+        boolean timestamps = plan.getTableConfig().isIncludeTimestamps();
+        if (timestamps) {
+            encoder.writeVarLong(row.getTimestamp());
+            encoder.writeUnsignedVarLong(row.getTtl());
+        }
+        writeKeys(encoder, plan.getClusteringNames(), row.getClusteringKeys());
+
+        List<CellData> cells = row.getAffectedCells();
+        encoder.writeUnsignedVarLong(cells.size());
+        for (CellData cell: cells) {
+            int flags = 0;
+            if (cell.isDeleted()) {
+                flags |= CELL_DELETED;
+            }
+            if (cell.getValue() != null) {
+                flags |= CELL_HAS_VALUE;
+            }
+            if (cell.getDeletedItems() != null) {
+                flags |= CELL_HAS_DELETED_ITEMS;
+            }
+            encoder.writeUnsignedVarLong(cell.getColumn().getPosition());
+            encoder.writeByte(flags);
+            if (timestamps) {
+                // The row timestamp is the latest one, so cells store how much older they are.
+                encoder.writeUnsignedVarLong(row.getTimestamp() - cell.getTimestamp());
+                encoder.writeUnsignedVarLong(cell.getTtl());
+            }
+            if (cell.getValue() != null) {
+                BinaryValueWriter.write(encoder, cell.getValue());
+            }
+            if (cell.getDeletedItems() != null) {
+                BinaryValueWriter.write(encoder, cell.getDeletedItems());
+            }
+        }
+    }
+
+    private void writeRangeTombstoneMarker(BinaryEncoder encoder, ExtractionPlan plan,
+                                           RangeTombstoneMarkerData marker) {
+        encoder.writeBoolean(marker.isStart());
+        if (plan.getTableConfig().isIncludeTimestamps()) {
+            encoder.writeVarLong(marker.getTimestamp());
+        }
+        List<RangeTombstoneMarkerBound> bounds = marker.getBounds();
+        encoder.writeUnsignedVarLong(bounds.size());
+        for (int i = 0; i < bounds.size(); i++) {
+            RangeTombstoneMarkerBound bound = bounds.get(i);
+            encoder.writeBoolean(bound.isInclusive());
+            BinaryValueWriter.write(encoder,
+                    bound.getClusteringKey().get(plan.getClusteringNames()[i]));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package kz.tim.serializers.binary;
+
+import kz.tim.extractors.decoders.RawDecoder;
+import kz.tim.extractors.decoders.SimpleDecoder;
+import kz.tim.extractors.decoders.ValueDecoder;
+import kz.tim.models.row.cell.CellType;
+import kz.tim.models.row.cell.CollectionDelta;
+import kz.tim.models.row.cell.LazyValue;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.BooleanType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Writes decoded values in the binary event format. Every value starts with a tag byte,
+ * so values stay self-describing while column names are replaced by positions.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class BinaryValueWriter {
+    public static final int TAG_NULL = 0;
+    public static final int TAG_FALSE = 1;
+    public static final int TAG_TRUE = 2;
+    public static final int TAG_INT = 3;
+    public static final int TAG_LONG = 4;
+    public static final int TAG_FLOAT = 5;
+    public static final int TAG_DOUBLE = 6;
+    public static final int TAG_STRING = 7;
+    public static final int TAG_BYTES = 8;
+    public static final int TAG_UUID = 9;
+    public static final int TAG_TIMESTAMP = 10;
+    public static final int TAG_DECIMAL = 11;
+    public static final int TAG_VARINT = 12;
+    public static final int TAG_INET = 13;
+    public static final int TAG_LIST = 14;
+    public static final int TAG_SET = 15;
+    public static final int TAG_MAP = 16;
+
+    private BinaryValueWriter() {
+    }
+
+    /**
+     * Writes the given value.
+     *
+     * @param encoder target encoder.
+     * @param value decoded value.
+     */
+    public static void write(BinaryEncoder encoder, Object value) {
+        if (value == null) {
+            encoder.writeByte(TAG_NULL);
+        } else
+        if (value instanceof LazyValue) {
+            writeLazy(encoder, (LazyValue) value);
+        } else
+        if (value instanceof CollectionDelta) {
+            writeDelta(encoder, (CollectionDelta) value);
+        } else
+        if (value instanceof String) {
+            encoder.writeByte(TAG_STRING);
+            encoder.writeString((String) value);
+        } else
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            encoder.writeByte(TAG_INT);
+            encoder.writeVarLong(((Number) value).intValue());
+        } else
+        if (value instanceof Long) {
+            encoder.writeByte(TAG_LONG);
+            encoder.writeVarLong((Long) value);
+        } else
+        if (value instanceof Boolean) {
+            encoder.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else
+        if (value instanceof Double) {
+            encoder.writeByte(TAG_DOUBLE);
+            encoder.writeLong(Double.doubleToLongBits((Double) value));
+        } else
+        if (value instanceof Float) {
+            encoder.writeByte(TAG_FLOAT);
+            encoder.writeInt(Float.floatToIntBits((Float) value));
+        } else
+        if (value instanceof UUID) {
+            encoder.writeByte(TAG_UUID);
+            encoder.writeLong(((UUID) value).getMostSignificantBits());
+            encoder.writeLong(((UUID) value).getLeastSignificantBits());
+        } else
+        if (value instanceof Date) {
+            encoder.writeByte(TAG_TIMESTAMP);
+            encoder.writeVarLong(((Date) value).getTime());
+        } else
+        if (value instanceof ByteBuffer) {
+            encoder.writeByte(TAG_BYTES);
+            encoder.writeBytes((ByteBuffer) value);
+        } else
+        if (value instanceof BigDecimal) {
+            encoder.writeByte(TAG_DECIMAL);
+            encoder.writeVarLong(((BigDecimal) value).scale());
+            encoder.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        } else
+        if (value instanceof BigInteger) {
+            encoder.writeByte(TAG_VARINT);
+            encoder.writeBytes(((BigInteger) value).toByteArray());
+        } else
+        if (value instanceof InetAddress) {
+            encoder.writeByte(TAG_INET);
+            encoder.writeBytes(((InetAddress) value).getAddress());
+        } else
+        if (value instanceof Map) {
+            encoder.writeByte(TAG_MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            encoder.writeUnsignedVarLong(map.size());
+            for (Map.Entry<?, ?> entry: map.entrySet()) {
+                write(encoder, entry.getKey());
+                write(encoder, entry.getValue());
+            }
+        } else
+        if (value instanceof Collection) {
+            encoder.writeByte(value instanceof Set ? TAG_SET : TAG_LIST);
+            Collection<?> collection = (Collection<?>) value;
+            encoder.writeUnsignedVarLong(collection.size());
+            for (Object element: collection) {
+                write(encoder, element);
+            }
+        } else {
+            encoder.writeByte(TAG_STRING);
+            encoder.writeString(value.toString());
+        }
+    }
+
+    /**
+     * Writes common types straight from the serialized bytes, they are encoded as text,
+     * big-endian or two's complement just like the tagged values.
+     */
+    private static void writeLazy(BinaryEncoder encoder, LazyValue value) {
+        writeLazy(encoder, value.getBytes(), value.getDecoder());
+    }
+
+    private static void writeLazy(BinaryEncoder encoder, ByteBuffer bytes, ValueDecoder decoder) {
+        if (bytes == null) {
+            encoder.writeByte(TAG_NULL);
+            return;
+        }
+        if (decoder instanceof RawDecoder) {
+            encoder.writeByte(TAG_BYTES);
+            encoder.writeBytes(bytes);
+            return;
+        }
+        if (decoder instanceof SimpleDecoder && bytes.hasRemaining()) {
+            AbstractType type = ((SimpleDecoder) decoder).getType();
+            int position = bytes.position();
+            if (type == UTF8Type.instance) {
+                encoder.writeByte(TAG_STRING);
+                encoder.writeBytes(bytes);
+                return;
+            }
+            if (type == Int32Type.instance) {
+                encoder.writeByte(TAG_INT);
+                encoder.writeVarLong(bytes.getInt(position));
+                return;
+            }
+            if (type == LongType.instance) {
+                encoder.writeByte(TAG_LONG);
+                encoder.writeVarLong(bytes.getLong(position));
+                return;
+            }
+            if (type == TimestampType.instance) {
+                encoder.writeByte(TAG_TIMESTAMP);
+                encoder.writeVarLong(bytes.getLong(position));
+                return;
+            }
+            if (type == DoubleType.instance) {
+                encoder.writeByte(TAG_DOUBLE);
+                encoder.writeLong(bytes.getLong(position));
+                return;
+            }
+            if (type == BooleanType.instance) {
+                encoder.writeByte(bytes.get(position) != 0 ? TAG_TRUE : TAG_FALSE);
+                return;
+            }
+        }
+        write(encoder, decoder.decode(bytes));
+    }
+
+    /**
+     * Writes collection elements straight from the serialized elements, encoded just like
+     * the decoded collections.
+     */
+    private static void writeDelta(BinaryEncoder encoder, CollectionDelta delta) {
+        CellType type = delta.getType();
+        if (type == CellType.MAP) {
+            encoder.writeByte(TAG_MAP);
+        } else
+        if (type == CellType.SET) {
+            encoder.writeByte(TAG_SET);
+        } else {
+            encoder.writeByte(TAG_LIST);
+        }
+        encoder.writeUnsignedVarLong(delta.size());
+        for (int i = 0; i < delta.size(); i++) {
+            if (type != CellType.LIST) {
+                writeLazy(encoder, delta.getKey(i), delta.getKeysDecoder());
+            }
+            if (type != CellType.SET) {
+                writeLazy(encoder, delta.getValue(i), delta.getValuesDecoder());
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package kz.tim.serializers.binary;
+
+import kz.tim.batching.RowBatch;
+import kz.tim.extractors.plan.ExtractionPlan;
+import kz.tim.models.row.RowData;
+import kz.tim.models.row.cell.CellData;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Writes {@link RowBatch} column by column (see README.MD): values of the same column of all
+ * rows follow each other, so batches compress far better than separate row records and can be
+ * loaded without parsing row by row. Missing values are marked in bitmaps of one bit per row,
+ * rows whose cells were shed are marked in a bitmap of their own.
+ *
+ * @author Timur Tibeyev.
+ */
+public class ColumnarBatchSerializer implements Serializer<RowBatch> {
+    private static final ThreadLocal<BinaryEncoder> encoders =
+            ThreadLocal.withInitial(BinaryEncoder::new);
+
+    private final SchemaRegistry schemaRegistry;
+
+    public ColumnarBatchSerializer(SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public byte[] serialize(String topic, RowBatch batch) {
+        if (batch == null) {
+            return null;
+        }
+        ExtractionPlan plan = batch.getPlan();
+        BinaryEncoder encoder = encoders.get();
+        encoder.reset();
+        encoder.writeByte(BinaryEventSerializer.MAGIC);
+        encoder.writeByte(BinaryEventSerializer.VERSION);
+        encoder.writeLong(schemaRegistry.register(plan));
+        encoder.writeByte(BinaryEventSerializer.EVENT_ROW_BATCH);
+        boolean timestamps = plan.getTableConfig().isIncludeTimestamps();
+        boolean keysOnly = batch.isKeysOnly();
+        encoder.writeByte((keysOnly ? BinaryEventSerializer.KEYS_ONLY : 0)
+                | (timestamps ? BinaryEventSerializer.TIMESTAMPS : 0));
+
+        List<RowData> rows = batch.getRows();
+        int rowCount = rows.size();
+        encoder.writeUnsignedVarLong(rowCount);
+
+        String[] partitionKeyNames = plan.getPartitionKeyNames();
+        encoder.writeUnsignedVarLong(partitionKeyNames.length);
+        for (String name: partitionKeyNames) {
+            for (Map<String, Object> partitionKeys: batch.getPartitionKeys()) {
+                BinaryValueWriter.write(encoder, partitionKeys.get(name));
+            }
+        }
+
+        String[] clusteringNames = plan.getClusteringNames();
+        encoder.writeUnsignedVarLong(clusteringNames.length);
+        for (String name: clusteringNames) {
+            writeBitmap(encoder, rowCount, i -> rows.get(i).getClusteringKeys().containsKey(name));
+            for (RowData row: rows) {
+                Map<String, Object> clusteringKeys = row.getClusteringKeys();
+                if (clusteringKeys.containsKey(name)) {
+                    BinaryValueWriter.write(encoder, clusteringKeys.get(name));
+                }
+            }
+        }
+
+        for (RowData row: rows) {
+            encoder.writeByte(row.getAction().ordinal());
+        }
+        if (keysOnly) {
+            writeBitmap(encoder, rowCount, batch::isKeysOnly);
+        }
+        if (timestamps) {
+            writeRowTimestamps(encoder, rows);
+        }
+
+        writeCells(encoder, plan, rows, timestamps);
+        return encoder.toByteArray();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Writes cells of the columns affected by at least one row, in column position order.
+     */
+    private void writeCells(BinaryEncoder encoder, ExtractionPlan plan, List<RowData> rows,
+                            boolean timestamps) {
+        int rowCount = rows.size();
+        CellData[][] columns = new CellData[plan.getColumns().size()][];
+        int columnCount = 0;
+        for (int i = 0; i < rowCount; i++) {
+            for (CellData cell: rows.get(i).getAffectedCells()) {
+                int position = cell.getColumn().getPosition();
+                if (columns[position] == null) {
+                    columns[position] = new CellData[rowCount];
+                    columnCount++;
+                }
+                columns[position][i] = cell;
+            }
+        }
+
+        encoder.writeUnsignedVarLong(columnCount);
+        for (int position = 0; position < columns.length; position++) {
+            CellData[] cells = columns[position];
+            if (cells == null) {
+                continue;
+            }
+            encoder.writeUnsignedVarLong(position);
+            writeBitmap(encoder, rowCount, i -> cells[i] != null);
+            if (timestamps) {
+                for (int i = 0; i < rowCount; i++) {
+                    if (cells[i] != null) {
+                        encoder.writeUnsignedVarLong(
+                                rows.get(i).getTimestamp() - cells[i].getTimestamp());
+                        encoder.writeUnsignedVarLong(cells[i].getTtl());
+                    }
+                }
+            }
+            writeBitmap(encoder, rowCount, i -> cells[i] != null && cells[i].isDeleted());
+            writeBitmap(encoder, rowCount, i -> cells[i] != null && cells[i].getValue() != null);
+            for (CellData cell: cells) {
+                if (cell != null && cell.getValue() != null) {
+                    BinaryValueWriter.write(encoder, cell.getValue());
+                }
+            }
+            writeBitmap(encoder, rowCount,
+                i -> cells[i] != null && cells[i].getDeletedItems() != null);
+            for (CellData cell: cells) {
+                if (cell != null && cell.getDeletedItems() != null) {
+                    BinaryValueWriter.write(encoder, cell.getDeletedItems());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes timestamp of the first row and differences to the previous row for the rest,
+     * rows of a batch are usually written close in time, then TTLs of all rows.
+     */
+    private void writeRowTimestamps(BinaryEncoder encoder, List<RowData> rows) {
+        long previous = 0;
+        for (RowData row: rows) {
+            encoder.writeVarLong(row.getTimestamp() - previous);
+            previous = row.getTimestamp();
+        }
+        for (RowData row: rows) {
+            encoder.writeUnsignedVarLong(row.getTtl());
+        }
+    }
+
+    /**
+     * Writes one bit per row, least significant bit first.
+     */
+    private void writeBitmap(BinaryEncoder encoder, int rowCount, IntPredicate bit) {
+        for (int from = 0; from < rowCount; from += Byte.SIZE) {
+            int bits = 0;
+            for (int i = from; i < Math.min(rowCount, from + Byte.SIZE); i++) {
+                if (bit.test(i)) {
+                    bits |= 1 << (i - from);
+                }
+            }
+            encoder.writeByte(bits);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package kz.tim.serializers.binary;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import kz.tim.extractors.plan.ColumnPlan;
+import kz.tim.extractors.plan.ExtractionPlan;
+import org.apache.cassandra.db.marshal.AbstractType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local file-backed registry of the table schemas referenced by binary events.
+ * Every schema is stored as a single json line. Schema id is derived from the schema
+ * itself, so all nodes assign the same id to the same table schema without coordination.
+ *
+ * @author Timur Tibeyev.
+ */
+public class SchemaRegistry {
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final Path path;
+    private final Set<Long> registeredIds = new HashSet<>();
+
+    /**
+     * Opens registry stored in the given file, the file is created on first registration.
+     *
+     * @param path registry file.
+     */
+    public SchemaRegistry(Path path) {
+        this.path = path;
+        load();
+    }
+
+    /**
+     * Returns id of the plan's table schema, registering the schema if it is new.
+     *
+     * @param plan extraction plan.
+     * @return schema id.
+     */
+    public long register(ExtractionPlan plan) {
+        Long schemaId = plan.getSchemaId();
+        if (schemaId != null) {
+            return schemaId;
+        }
+        String schema = describe(plan);
+        long id = computeId(schema);
+        synchronized (this) {
+            if (!registeredIds.contains(id)) {
+                append("{\"id\":" + id + "," + schema.substring(1) + "\n");
+                registeredIds.add(id);
+            }
+        }
+        plan.setSchemaId(id);
+        return id;
+    }
+
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            for (String line: Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    registeredIds.add(readId(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load schema registry " + path, e);
+        }
+    }
+
+    private long readId(String line) throws IOException {
+        try (JsonParser parser = factory.createParser(line)) {
+            while (parser.nextToken() != null) {
+                if (parser.getCurrentToken() == JsonToken.FIELD_NAME
+                        && "id".equals(parser.getCurrentName())) {
+                    parser.nextToken();
+                    return parser.getLongValue();
+                }
+            }
+        }
+        throw new IOException("Schema without id: " + line);
+    }
+
+    private void append(String line) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update schema registry " + path, e);
+        }
+    }
+
+    private String describe(ExtractionPlan plan) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = factory.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("keyspace", plan.getKeyspaceName());
+            generator.writeStringField("table", plan.getTableName());
+            writeKeys(generator, "partitionKeys", plan.getPartitionKeyNames(),
+                    plan.getPartitionKeyTypes());
+            writeKeys(generator, "clusteringKeys", plan.getClusteringNames(),
+                    plan.getClusteringTypes());
+            generator.writeArrayFieldStart("columns");
+            List<ColumnPlan> columns = plan.getColumns();
+            for (ColumnPlan column: columns) {
+                generator.writeStartObject();
+                generator.writeStringField("name", column.getName());
+                generator.writeStringField("type",
+                        column.getDefinition().type.asCQL3Type().toString());
+                generator.writeStringField("kind", column.getDefinition().kind.name());
+                generator.writeStringField("cellType", column.getCellType().name());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private void writeKeys(JsonGenerator generator, String field, String[] names,
+                           AbstractType[] types) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (int i = 0; i < names.length; i++) {
+            generator.writeStartObject();
+            generator.writeStringField("name", names[i]);
+            generator.writeStringField("type", types[i].asCQL3Type().toString());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private long computeId(String schema) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5")
+                    .digest(schema.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package kz.tim.shedding;
+
+import kz.tim.config.SheddingConfig;
+import kz.tim.config.TriggerConfig;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Decides how much of every partition update is sent, based on the load measured at most once
+ * per {@link SheddingConfig#getCheckIntervalMillis()} by the thread which finds it outdated.
+ * Settings are taken from the current configuration, so they follow reloads.
+ *
+ * @author Timur Tibeyev.
+ */
+public class LoadShedder {
+    private final Logger logger = Logger.getLogger(LoadShedder.class);
+    private final IntSupplier loadPercent;
+    private final AtomicLong nextCheck = new AtomicLong(System.nanoTime());
+    private volatile SheddingTier tier = SheddingTier.NONE;
+    private volatile int load;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param loadPercent measures current load in percent.
+     */
+    public LoadShedder(IntSupplier loadPercent) {
+        this.loadPercent = loadPercent;
+    }
+
+    /**
+     * Decides what to do with an update of a table with the given priority. Returns
+     * {@link SheddingTier#KEYS_ONLY} for updates kept by sampling and
+     * {@link SheddingTier#SAMPLE} for updates left out by sampling.
+     *
+     * @param priority shedding priority of the table.
+     * @return {@link SheddingTier#NONE} if the update is sent as is.
+     */
+    public SheddingTier decide(SheddingPriority priority) {
+        SheddingConfig config = TriggerConfig.current().getSheddingConfig();
+        if (!config.isEnabled()) {
+            return SheddingTier.NONE;
+        }
+        refresh(config);
+        SheddingTier current = tier;
+        if (current == SheddingTier.NONE) {
+            return SheddingTier.NONE;
+        }
+        int shift = priority == SheddingPriority.LOW ? 1
+                : priority == SheddingPriority.HIGH ? -1 : 0;
+        int ordinal = Math.min(SheddingTier.DROP.ordinal(),
+                Math.max(SheddingTier.NONE.ordinal(), current.ordinal() + shift));
+        SheddingTier result = SheddingTier.values()[ordinal];
+        if (result == SheddingTier.SAMPLE && ThreadLocalRandom.current().nextInt(100)
+                < config.getSampleRatePercent()) {
+            return SheddingTier.KEYS_ONLY;
+        }
+        return result;
+    }
+
+    /**
+     * Returns tier of the last load measurement, before table priorities are applied.
+     *
+     * @return shedding tier.
+     */
+    public SheddingTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Returns last measured load.
+     *
+     * @return load in percent.
+     */
+    public int getLoad() {
+        return load;
+    }
+
+    private void refresh(SheddingConfig config) {
+        long now = System.nanoTime();
+        long next = nextCheck.get();
+        if (now - next < 0 || !nextCheck.compareAndSet(next,
+                now + TimeUnit.MILLISECONDS.toNanos(config.getCheckIntervalMillis()))) {
+            return;
+        }
+        int current = loadPercent.getAsInt();
+        SheddingTier updated;
+        if (current >= config.getDropPercent()) {
+            updated = SheddingTier.DROP;
+        } else
+        if (current >= config.getSamplePercent()) {
+            updated = SheddingTier.SAMPLE;
+        } else
+        if (current >= config.getKeysOnlyPercent()) {
+            updated = SheddingTier.KEYS_ONLY;
+        } else {
+            updated = SheddingTier.NONE;
+        }
+        load = current;
+        if (updated.compareTo(tier) > 0) {
+            logger.warn("Load is " + current + "%, shedding tier raised to " + updated);
+        } else
+        if (updated.compareTo(tier) < 0) {
+            logger.info("Load is " + current + "%, shedding tier lowered to " + updated);
+        }
+        tier = updated;
+    }
+}
@@ -0,0 +1,12 @@
+package kz.tim.shedding;
+
+/**
+ * Shedding priority of a table. Updates of {@link #LOW} priority tables are shed one tier
+ * earlier than the current {@link SheddingTier}, updates of {@link #HIGH} priority tables
+ * one tier later.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum SheddingPriority {
+    LOW, NORMAL, HIGH
+}
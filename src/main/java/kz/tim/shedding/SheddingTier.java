@@ -0,0 +1,13 @@
+package kz.tim.shedding;
+
+/**
+ * How much of a partition update is sent under load, from sending everything to sending nothing.
+ * If it is {@link #KEYS_ONLY}, then rows carry primary keys and actions without cells.
+ * If it is {@link #SAMPLE}, then only a sample of the updates is sent, keys only.
+ * If it is {@link #DROP}, then the update is not sent and only counted.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum SheddingTier {
+    NONE, KEYS_ONLY, SAMPLE, DROP
+}
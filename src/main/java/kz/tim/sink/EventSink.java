@@ -0,0 +1,80 @@
+package kz.tim.sink;
+
+import kz.tim.config.TriggerConfig;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+/**
+ * Destination of the serialized records. Records keep the Kafka shape (topic, partition, key,
+ * value and headers) whatever the sink is, so the trigger produces the same records for every
+ * sink and only their transport differs.
+ *
+ * @author Timur Tibeyev.
+ */
+public interface EventSink {
+
+    /**
+     * Sends record asynchronously.
+     *
+     * @param producer producer profile of the record's table.
+     * @param keyHash hash of the partition key, records of the same hash keep their order.
+     * @param record record to send.
+     * @param callback notified once the record is stored or failed, with {@code null} metadata
+     *                 and exception if the record was accepted for later delivery.
+     */
+    void send(String producer, int keyHash, ProducerRecord<byte[], byte[]> record,
+              Callback callback);
+
+    /**
+     * Returns number of partitions of the topic, used by the token partitioning. Sinks with
+     * partitions throw if they can't tell the count, rather than leave the partition unset.
+     *
+     * @param producer producer profile of the table.
+     * @param topic topic name.
+     * @return number of partitions or {@code null} if the sink doesn't partition records.
+     */
+    default Integer partitionCount(String producer, String topic) {
+        return null;
+    }
+
+    /**
+     * Returns memory used by records waiting to be sent.
+     *
+     * @return used bytes.
+     */
+    default long getBufferUsedBytes() {
+        return 0;
+    }
+
+    /**
+     * Returns fill ratio of the fullest send buffer, used to shed load.
+     *
+     * @return used share of the buffer in percent.
+     */
+    default int getBufferUsedPercent() {
+        return 0;
+    }
+
+    /**
+     * Returns fill ratio of the queue of records waiting to be stored for later delivery,
+     * used to shed load.
+     *
+     * @return used share of the queue in percent.
+     */
+    default int getSpillQueuePercent() {
+        return 0;
+    }
+
+    /**
+     * Applies reloaded configuration.
+     *
+     * @param config trigger configuration.
+     */
+    default void applyConfig(TriggerConfig config) {
+    }
+
+    /**
+     * Sends or stores records which are still buffered and releases resources.
+     */
+    void close();
+}
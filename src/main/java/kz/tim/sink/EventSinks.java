@@ -0,0 +1,52 @@
+package kz.tim.sink;
+
+import kz.tim.config.JournalConfig;
+import kz.tim.config.SinkConfig;
+import kz.tim.config.TriggerConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Creates the sink selected by the {@code sink} section of the configuration.
+ *
+ * @author Timur Tibeyev.
+ */
+public final class EventSinks {
+
+    private EventSinks() {
+    }
+
+    /**
+     * Creates sink of the configured type.
+     *
+     * @param config trigger configuration.
+     * @return sink.
+     */
+    public static EventSink create(TriggerConfig config) {
+        return create(config, config.getJournalConfig());
+    }
+
+    /**
+     * Creates sink of the configured type with the given spill journal settings.
+     *
+     * @param config trigger configuration.
+     * @param journalConfig spill journal settings of the {@code kafka} sink.
+     * @return sink.
+     */
+    public static EventSink create(TriggerConfig config, JournalConfig journalConfig) {
+        SinkConfig sinkConfig = config.getSinkConfig();
+        if (sinkConfig.getType() == SinkType.FILE) {
+            try {
+                return new FileSink(sinkConfig);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open sink directory "
+                        + sinkConfig.getDirectory(), e);
+            }
+        } else
+        if (sinkConfig.getType() == SinkType.MEMORY) {
+            return new MemorySink(sinkConfig.getMemoryCapacity());
+        }
+        return new KafkaSink(config, journalConfig);
+    }
+}
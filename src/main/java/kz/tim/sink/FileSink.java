@@ -0,0 +1,192 @@
+package kz.tim.sink;
+
+import kz.tim.config.SinkConfig;
+import kz.tim.journal.SpilledRecord;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Appends records to local log files, to be shipped out of band. Records are collected in a
+ * buffer which is written with a single {@link FileChannel} write once it is full or every
+ * {@link SinkConfig#getFlushIntervalMillis()}, records are acknowledged when they are written.
+ * A new file is started when the current one reaches {@link SinkConfig#getSegmentSize()}, the
+ * finished file is forced to disk and never written again. Every run starts a new file.
+ * Records are laid out as {@code [int length][int crc32][payload]}, where the payload is
+ * encoded as {@link SpilledRecord#encode()} and the offset in the metadata is the position
+ * of the record in its file.
+ *
+ * @author Timur Tibeyev.
+ */
+public class FileSink implements EventSink {
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final String LOG_PREFIX = "events-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Logger logger = Logger.getLogger(FileSink.class);
+    private final Path directory;
+    private final long segmentSize;
+    private final ByteBuffer batch;
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+    private final List<Callback> callbacks = new ArrayList<>();
+    private final List<RecordMetadata> metadata = new ArrayList<>();
+    private long segmentId;
+    private FileChannel channel;
+    private long position;
+
+    /**
+     * Opens new log file in the configured directory and starts the flush thread.
+     *
+     * @param config sink settings.
+     * @throws IOException if the log file can't be created.
+     */
+    public FileSink(SinkConfig config) throws IOException {
+        directory = config.getDirectory();
+        segmentSize = config.getSegmentSize();
+        batch = ByteBuffer.allocateDirect(config.getBatchSize());
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path path: stream) {
+                String name = path.getFileName().toString();
+                segmentId = Math.max(segmentId, Long.parseLong(name.substring(
+                        LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+            }
+        }
+        openSegment();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cassandra-trigger-sink-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, config.getFlushIntervalMillis(),
+                config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(String producer, int keyHash, ProducerRecord<byte[], byte[]> record,
+                     Callback callback) {
+        byte[] payload = new SpilledRecord(producer, record).encode();
+        int size = HEADER_SIZE + payload.length;
+        synchronized (this) {
+            try {
+                if (size > batch.remaining() || position + batch.position() + size > segmentSize) {
+                    write();
+                    if (position > 0 && position + size > segmentSize) {
+                        rotate();
+                    }
+                }
+                RecordMetadata recordMetadata = SinkRecords.metadata(record,
+                        position + batch.position());
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if (size > batch.capacity()) {
+                    ByteBuffer buffer = ByteBuffer.allocate(size);
+                    buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+                    buffer.flip();
+                    writeFully(buffer);
+                    callback.onCompletion(recordMetadata, null);
+                } else {
+                    batch.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+                    callbacks.add(callback);
+                    metadata.add(recordMetadata);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to write records to " + segmentPath(segmentId), e);
+                callback.onCompletion(null, e);
+            }
+        }
+    }
+
+    /**
+     * Writes buffered records and acknowledges them.
+     */
+    public synchronized void flush() {
+        try {
+            write();
+        } catch (IOException e) {
+            logger.error("Failed to write records to " + segmentPath(segmentId), e);
+        }
+    }
+
+    /**
+     * Writes buffered records, forces the log file to disk and closes it.
+     */
+    @Override
+    public synchronized void close() {
+        flusher.shutdownNow();
+        flush();
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close " + segmentPath(segmentId), e);
+        }
+    }
+
+    /**
+     * Writes the batch and notifies callbacks of its records, which fail if the write fails.
+     */
+    private void write() throws IOException {
+        if (callbacks.isEmpty()) {
+            return;
+        }
+        batch.flip();
+        try {
+            writeFully(batch);
+            for (int i = 0; i < callbacks.size(); i++) {
+                callbacks.get(i).onCompletion(metadata.get(i), null);
+            }
+        } catch (IOException e) {
+            for (Callback callback: callbacks) {
+                callback.onCompletion(null, e);
+            }
+            throw e;
+        } finally {
+            batch.clear();
+            callbacks.clear();
+            metadata.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        segmentId++;
+        channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        position = 0;
+        logger.info("Writing records to " + segmentPath(segmentId));
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", LOG_PREFIX, id, LOG_SUFFIX));
+    }
+}
@@ -0,0 +1,368 @@
+package kz.tim.sink;
+
+import kz.tim.config.JournalConfig;
+import kz.tim.config.TriggerConfig;
+import kz.tim.journal.SpillJournal;
+import kz.tim.journal.SpillingDispatcher;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sends records to Kafka with the producer profile configured for their table, spilling them
+ * to the journal while Kafka is unavailable if it is enabled. A profile may be sharded into
+ * several producers, each with its own I/O thread and buffer; records are spread over them
+ * by partition key hash, so records of a partition keep their order. Producers are recreated
+ * when their profile changes in the reloaded configuration. Partition counts used by the token
+ * partitioning are cached and refreshed in the background.
+ *
+ * @author Timur Tibeyev.
+ */
+public class KafkaSink implements EventSink {
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+    private static final String BUFFER_TOTAL_BYTES = "buffer-total-bytes";
+    private static final String BUFFER_AVAILABLE_BYTES = "buffer-available-bytes";
+    private static final long PARTITIONS_REFRESH_SECONDS = 30;
+    private Logger logger = Logger.getLogger(KafkaSink.class);
+    private final Function<Map<String, Object>, Producer<byte[], byte[]>> producerFactory;
+    private volatile Map<String, List<Producer<byte[], byte[]>>> producers =
+            Collections.emptyMap();
+    private Map<String, Map<String, Object>> producerProfiles = Collections.emptyMap();
+    private final JournalConfig journalConfig;
+    private final SpillingDispatcher dispatcher;
+    private final Map<String, Map<String, Integer>> partitionCounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService partitionsRefresher;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param config trigger configuration.
+     */
+    public KafkaSink(TriggerConfig config) {
+        this(config, config.getJournalConfig(), KafkaSink::createProducer);
+    }
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param config trigger configuration.
+     * @param journalConfig spill journal settings used instead of the configured ones.
+     */
+    public KafkaSink(TriggerConfig config, JournalConfig journalConfig) {
+        this(config, journalConfig, KafkaSink::createProducer);
+    }
+
+    KafkaSink(TriggerConfig config,
+              Function<Map<String, Object>, Producer<byte[], byte[]>> producerFactory) {
+        this(config, config.getJournalConfig(), producerFactory);
+    }
+
+    private KafkaSink(TriggerConfig config, JournalConfig journalConfig,
+                      Function<Map<String, Object>, Producer<byte[], byte[]>> producerFactory) {
+        this.producerFactory = producerFactory;
+        this.journalConfig = journalConfig;
+        applyConfig(config);
+        dispatcher = journalConfig.isEnabled() ? createDispatcher(journalConfig) : null;
+        partitionsRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cassandra-trigger-partitions-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        partitionsRefresher.scheduleWithFixedDelay(this::refreshPartitionCounts,
+                PARTITIONS_REFRESH_SECONDS, PARTITIONS_REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates producers of the new and changed profiles and closes producers of the changed
+     * and removed ones.
+     *
+     * @param config trigger configuration.
+     */
+    @Override
+    public synchronized void applyConfig(TriggerConfig config) {
+        Map<String, Map<String, Object>> profiles = config.getProducers();
+        Map<String, List<Producer<byte[], byte[]>>> current = producers;
+        Map<String, List<Producer<byte[], byte[]>>> updated = new HashMap<>();
+        List<Producer<byte[], byte[]>> outdated = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> profile: profiles.entrySet()) {
+            List<Producer<byte[], byte[]>> shards = current.get(profile.getKey());
+            if (shards == null
+                    || !profile.getValue().equals(producerProfiles.get(profile.getKey()))) {
+                if (shards != null) {
+                    outdated.addAll(shards);
+                }
+                shards = createShards(profile.getValue());
+                logger.info("Kafka producer " + profile.getKey() + " created"
+                        + (shards.size() > 1 ? " with " + shards.size() + " shards" : ""));
+            }
+            updated.put(profile.getKey(), shards);
+        }
+        for (Map.Entry<String, List<Producer<byte[], byte[]>>> entry: current.entrySet()) {
+            if (!profiles.containsKey(entry.getKey())) {
+                outdated.addAll(entry.getValue());
+            }
+        }
+        producers = updated;
+        producerProfiles = profiles;
+        for (Producer<byte[], byte[]> producer: outdated) {
+            producer.close(CLOSE_TIMEOUT);
+        }
+    }
+
+    /**
+     * Flushes and closes all producers. The journal is closed last, so records failing
+     * while the producers are flushed are still spilled.
+     */
+    @Override
+    public synchronized void close() {
+        partitionsRefresher.shutdownNow();
+        boolean interrupted = false;
+        if (dispatcher != null) {
+            try {
+                dispatcher.stopReplay();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (List<Producer<byte[], byte[]>> shards: producers.values()) {
+            for (Producer<byte[], byte[]> producer: shards) {
+                producer.close(CLOSE_TIMEOUT);
+            }
+        }
+        producers = Collections.emptyMap();
+        if (dispatcher != null) {
+            try {
+                dispatcher.shutdown();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void send(String producer, int keyHash, ProducerRecord<byte[], byte[]> record,
+                     Callback callback) {
+        Map<String, List<Producer<byte[], byte[]>>> current = producers;
+        while (true) {
+            List<Producer<byte[], byte[]>> shards = current.get(producer);
+            int shard = shards == null ? 0 : Math.floorMod(keyHash, shards.size());
+            if (dispatcher != null) {
+                dispatcher.send(producer, shard, record, callback);
+                return;
+            }
+            if (shards == null) {
+                throw new IllegalStateException("Unknown producer " + producer);
+            }
+            try {
+                shards.get(shard).send(record, callback);
+                return;
+            } catch (KafkaException | IllegalStateException e) {
+                // The producer was closed by a concurrent configuration reload, retry with
+                // the producers which replaced it.
+                if (producers == current) {
+                    throw e;
+                }
+                current = producers;
+            }
+        }
+    }
+
+    /**
+     * Returns cached number of partitions, refreshed in the background. The first record of a
+     * topic fetches it from the producer metadata, waiting for it like a producer send does.
+     * A failed fetch is not cached, records of the topic fail until the count is known, so
+     * they are never sent to a partition chosen by the producer partitioner instead.
+     *
+     * @throws KafkaException if the count can't be fetched.
+     */
+    @Override
+    public Integer partitionCount(String producer, String topic) {
+        Map<String, Integer> counts =
+                partitionCounts.computeIfAbsent(producer, key -> new ConcurrentHashMap<>());
+        Integer count = counts.get(topic);
+        if (count == null) {
+            count = fetchPartitionCount(producer, topic);
+            Integer previous = counts.putIfAbsent(topic, count);
+            count = previous == null ? count : previous;
+        }
+        return count;
+    }
+
+    /**
+     * Returns memory used by records waiting in the producer buffers to be sent.
+     *
+     * @return used bytes of all producers.
+     */
+    @Override
+    public long getBufferUsedBytes() {
+        double used = 0;
+        for (List<Producer<byte[], byte[]>> shards: producers.values()) {
+            for (Producer<byte[], byte[]> producer: shards) {
+                double[] buffer = bufferTotalAndAvailable(producer);
+                used += buffer[0] - buffer[1];
+            }
+        }
+        return (long) used;
+    }
+
+    /**
+     * Returns fill ratio of the fullest producer buffer, shards included.
+     *
+     * @return used share of the buffer in percent.
+     */
+    @Override
+    public int getBufferUsedPercent() {
+        double percent = 0;
+        for (List<Producer<byte[], byte[]>> shards: producers.values()) {
+            for (Producer<byte[], byte[]> producer: shards) {
+                double[] buffer = bufferTotalAndAvailable(producer);
+                if (buffer[0] > 0) {
+                    percent = Math.max(percent, (buffer[0] - buffer[1]) * 100 / buffer[0]);
+                }
+            }
+        }
+        return (int) percent;
+    }
+
+    /**
+     * Returns fill ratio of the queue of records waiting to be spilled to the journal.
+     *
+     * @return used share of the spill queue in percent.
+     */
+    @Override
+    public int getSpillQueuePercent() {
+        return dispatcher == null ? 0 : dispatcher.getSpillQueuePercent();
+    }
+
+    /**
+     * Refetches cached partition counts, keeping the last known count if it can't be fetched.
+     */
+    private void refreshPartitionCounts() {
+        for (Map.Entry<String, Map<String, Integer>> producer: partitionCounts.entrySet()) {
+            for (Map.Entry<String, Integer> topic: producer.getValue().entrySet()) {
+                int count;
+                try {
+                    count = fetchPartitionCount(producer.getKey(), topic.getKey());
+                } catch (KafkaException | IllegalStateException e) {
+                    logger.debug("Partitions of topic " + topic.getKey() + " are unknown", e);
+                    continue;
+                }
+                if (count != topic.getValue()) {
+                    logger.info("Topic " + topic.getKey() + " has " + count + " partitions");
+                    topic.setValue(count);
+                }
+            }
+        }
+    }
+
+    private int fetchPartitionCount(String producer, String topic) {
+        Producer<byte[], byte[]> kafkaProducer = producer(producer, 0);
+        if (kafkaProducer == null) {
+            throw new IllegalStateException("Unknown producer " + producer);
+        }
+        List<PartitionInfo> partitionInfos = kafkaProducer.partitionsFor(topic);
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            throw new KafkaException("Partitions of topic " + topic + " are unknown");
+        }
+        return partitionInfos.size();
+    }
+
+    private double[] bufferTotalAndAvailable(Producer<byte[], byte[]> producer) {
+        double total = 0;
+        double available = 0;
+        for (Map.Entry<MetricName, ? extends Metric> entry: producer.metrics().entrySet()) {
+            if (!PRODUCER_METRICS_GROUP.equals(entry.getKey().group())) {
+                continue;
+            }
+            if (BUFFER_TOTAL_BYTES.equals(entry.getKey().name())) {
+                total = metricValue(entry.getValue());
+            } else
+            if (BUFFER_AVAILABLE_BYTES.equals(entry.getKey().name())) {
+                available = metricValue(entry.getValue());
+            }
+        }
+        return new double[] {total, available};
+    }
+
+    private double metricValue(Metric metric) {
+        Object value = metric.metricValue();
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    /**
+     * Returns producer of the given profile and shard, shard numbers wrap around if the profile
+     * was resharded meanwhile.
+     */
+    private Producer<byte[], byte[]> producer(String name, int shard) {
+        List<Producer<byte[], byte[]>> shards = producers.get(name);
+        return shards == null ? null : shards.get(shard % shards.size());
+    }
+
+    /**
+     * Creates producers of the profile, shards get their own {@code client.id} if it is set.
+     */
+    private List<Producer<byte[], byte[]>> createShards(Map<String, Object> profile) {
+        Map<String, Object> properties = new HashMap<>(profile);
+        int shardCount = Integer.parseInt(String.valueOf(
+                properties.getOrDefault(TriggerConfig.PRODUCER_SHARDS, 1)).trim());
+        properties.remove(TriggerConfig.PRODUCER_SHARDS);
+        if (journalConfig.isEnabled()) {
+            properties.putIfAbsent(ProducerConfig.MAX_BLOCK_MS_CONFIG,
+                    String.valueOf(journalConfig.getMaxBlockMillis()));
+        }
+        Object clientId = properties.get(ProducerConfig.CLIENT_ID_CONFIG);
+        List<Producer<byte[], byte[]>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            if (clientId != null && shardCount > 1) {
+                properties.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-" + i);
+            }
+            shards.add(producerFactory.apply(new HashMap<>(properties)));
+        }
+        return shards;
+    }
+
+    private SpillingDispatcher createDispatcher(JournalConfig journalConfig) {
+        try {
+            return new SpillingDispatcher(new SpillJournal(journalConfig), this::producer,
+                    journalConfig.getReplayBatchSize(), journalConfig.getSpillQueueSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open spill journal "
+                    + journalConfig.getDirectory(), e);
+        }
+    }
+
+    private static Producer<byte[], byte[]> createProducer(Map<String, Object> properties) {
+        Map<String, Object> configuration = new HashMap<>(properties);
+        Serializer<byte[]> keySerializer = new ByteArraySerializer();
+        Serializer<byte[]> valueSerializer = new ByteArraySerializer();
+
+        return new KafkaProducer<>(configuration, keySerializer, valueSerializer);
+    }
+}
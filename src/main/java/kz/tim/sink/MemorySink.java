@@ -0,0 +1,68 @@
+package kz.tim.sink;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the latest records in memory and acknowledges them immediately. Used by tests and
+ * to measure the cost of the trigger without any transport.
+ *
+ * @author Timur Tibeyev.
+ */
+public class MemorySink implements EventSink {
+    private final int capacity;
+    private final ArrayDeque<ProducerRecord<byte[], byte[]>> records = new ArrayDeque<>();
+    private long offset;
+
+    /**
+     * Parametrized constructor.
+     *
+     * @param capacity number of the latest records kept, older ones are discarded.
+     */
+    public MemorySink(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void send(String producer, int keyHash, ProducerRecord<byte[], byte[]> record,
+                     Callback callback) {
+        long recordOffset;
+        synchronized (records) {
+            if (records.size() == capacity) {
+                records.removeFirst();
+            }
+            records.addLast(record);
+            recordOffset = offset++;
+        }
+        callback.onCompletion(SinkRecords.metadata(record, recordOffset), null);
+    }
+
+    /**
+     * Returns kept records in the order they were sent.
+     *
+     * @return copy of the records.
+     */
+    public List<ProducerRecord<byte[], byte[]>> records() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**
+     * Discards kept records.
+     */
+    public void clear() {
+        synchronized (records) {
+            records.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+}
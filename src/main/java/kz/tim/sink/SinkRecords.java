@@ -0,0 +1,33 @@
+package kz.tim.sink;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.RecordBatch;
+
+/**
+ * Helpers shared by the sinks which store records themselves.
+ *
+ * @author Timur Tibeyev.
+ */
+final class SinkRecords {
+
+    private SinkRecords() {
+    }
+
+    /**
+     * Returns metadata acknowledging the stored record, partition is {@code -1} if the record
+     * doesn't set it.
+     *
+     * @param record stored record.
+     * @param offset position of the record in the sink.
+     * @return record metadata.
+     */
+    static RecordMetadata metadata(ProducerRecord<byte[], byte[]> record, long offset) {
+        int partition = record.partition() == null ? RecordMetadata.UNKNOWN_PARTITION
+                : record.partition();
+        return new RecordMetadata(new TopicPartition(record.topic(), partition), offset, 0,
+                RecordBatch.NO_TIMESTAMP, null,
+                record.key() == null ? -1 : record.key().length, record.value().length);
+    }
+}
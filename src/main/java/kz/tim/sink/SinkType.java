@@ -0,0 +1,13 @@
+package kz.tim.sink;
+
+/**
+ * Where records of the partition updates go.
+ * If it is {@link #KAFKA}, then they are sent with the configured producers.
+ * If it is {@link #FILE}, then they are appended to local log files, see {@link FileSink}.
+ * If it is {@link #MEMORY}, then the latest of them are kept in memory, see {@link MemorySink}.
+ *
+ * @author Timur Tibeyev.
+ */
+public enum SinkType {
+    KAFKA, FILE, MEMORY
+}
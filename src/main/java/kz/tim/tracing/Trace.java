@@ -0,0 +1,113 @@
+package kz.tim.tracing;
+
+import kz.tim.shedding.SheddingTier;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stage timings and record sizes of a single traced partition update. Filled by the worker
+ * thread processing the update, acknowledgements of its records are counted by the sink
+ * threads afterwards.
+ *
+ * @author Timur Tibeyev.
+ */
+public class Trace {
+    private final long id;
+    private final long startMillis = System.currentTimeMillis();
+    private final String table;
+    private final String partitionKey;
+    private final String reason;
+    private SheddingTier shedding = SheddingTier.NONE;
+    private long extractionNanos;
+    private long serializationNanos;
+    private int records;
+    private long bytes;
+    private int bufferedRows;
+    private long processingNanos;
+    private String error;
+    private final AtomicInteger acknowledged = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    Trace(long id, String table, String partitionKey, String reason) {
+        this.id = id;
+        this.table = table;
+        this.partitionKey = partitionKey;
+        this.reason = reason;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setShedding(SheddingTier shedding) {
+        this.shedding = shedding;
+    }
+
+    public void setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+    }
+
+    /**
+     * Adds serialized record of the update.
+     *
+     * @param nanos serialization time.
+     * @param size record size in bytes.
+     */
+    public void addRecord(long nanos, int size) {
+        serializationNanos += nanos;
+        records++;
+        bytes += size;
+    }
+
+    /**
+     * Adds rows left to the coalescing window or the columnar batches, they are sent
+     * after the trace is finished.
+     *
+     * @param rows number of rows.
+     */
+    public void addBufferedRows(int rows) {
+        bufferedRows += rows;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    void setProcessingNanos(long processingNanos) {
+        this.processingNanos = processingNanos;
+    }
+
+    /**
+     * Counts acknowledged or failed record of the update.
+     *
+     * @param nanos time from handing the record to the sink until it was acknowledged.
+     * @param success whether the record was stored.
+     */
+    public void onSent(long nanos, boolean success) {
+        if (success) {
+            acknowledged.incrementAndGet();
+            maxSendNanos.accumulateAndGet(nanos, Math::max);
+        } else {
+            failed.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x %s %s key=%s reason=%s shedding=%s extraction=%s "
+                        + "serialization=%s records=%d bytes=%d buffered=%d processing=%s "
+                        + "acknowledged=%d failed=%d maxSend=%s%s",
+                id, Instant.ofEpochMilli(startMillis), table, partitionKey, reason, shedding,
+                millis(extractionNanos), millis(serializationNanos), records, bytes,
+                bufferedRows, millis(processingNanos), acknowledged.get(), failed.get(),
+                millis(maxSendNanos.get()), error == null ? "" : " error=" + error);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
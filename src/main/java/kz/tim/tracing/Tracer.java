@@ -0,0 +1,154 @@
+package kz.tim.tracing;
+
+import kz.tim.config.TracingConfig;
+import kz.tim.config.TriggerConfig;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Picks partition updates to trace and keeps the latest finished traces in a ring buffer,
+ * which is dumped over JMX. Updates which are not traced cost a single configuration check,
+ * nothing is logged per update.
+ *
+ * @author Timur Tibeyev.
+ */
+public class Tracer implements TracerMBean {
+    public static final String MBEAN_NAME = "kz.tim:type=Tracer";
+    private static final String SAMPLED = "sampled";
+    private static final String TABLE = "table";
+    private static final String PARTITION = "partition";
+
+    private final Logger logger = Logger.getLogger(Tracer.class);
+    private final AtomicReferenceArray<Trace> traces;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+
+    /**
+     * Parametrized constructor, registers the MBean.
+     *
+     * @param bufferSize number of the latest traces kept.
+     */
+    public Tracer(int bufferSize) {
+        traces = new AtomicReferenceArray<>(bufferSize);
+        registerMBean();
+    }
+
+    /**
+     * Starts trace of the partition update if it is chosen by the tracing settings.
+     *
+     * @param update partition update.
+     * @return trace or {@code null} if the update isn't traced.
+     */
+    public Trace start(Partition update) {
+        TracingConfig config = TriggerConfig.current().getTracingConfig();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        CFMetaData metadata = update.metadata();
+        String partitionKey = null;
+        String reason = null;
+        if (!config.getTables().isEmpty() && (config.getTables().contains(metadata.ksName)
+                || config.getTables().contains(metadata.ksName + "." + metadata.cfName))) {
+            reason = TABLE;
+        } else
+        if (!config.getPartitionKeys().isEmpty()) {
+            partitionKey = partitionKey(update);
+            if (config.getPartitionKeys().contains(partitionKey)) {
+                reason = PARTITION;
+            }
+        }
+        if (reason == null && config.getSampleOneIn() > 0
+                && ThreadLocalRandom.current().nextInt(config.getSampleOneIn()) == 0) {
+            reason = SAMPLED;
+        }
+        if (reason == null) {
+            return null;
+        }
+        return new Trace(nextId.incrementAndGet(), metadata.ksName + "." + metadata.cfName,
+                partitionKey == null ? partitionKey(update) : partitionKey, reason);
+    }
+
+    /**
+     * Adds finished trace to the ring buffer, replacing the oldest one if it is full.
+     *
+     * @param trace trace of the processed update.
+     * @param processingNanos processing time of the update.
+     */
+    public void finish(Trace trace, long processingNanos) {
+        trace.setProcessingNanos(processingNanos);
+        traces.set((int) (finished.getAndIncrement() % traces.length()), trace);
+    }
+
+    @Override
+    public String[] dump() {
+        long end = finished.get();
+        List<String> result = new ArrayList<>(traces.length());
+        for (long i = Math.max(0, end - traces.length()); i < end; i++) {
+            Trace trace = traces.get((int) (i % traces.length()));
+            if (trace != null) {
+                result.add(trace.toString());
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < traces.length(); i++) {
+            traces.set(i, null);
+        }
+    }
+
+    @Override
+    public long getTracedUpdates() {
+        return finished.get();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return traces.length();
+    }
+
+    private static String partitionKey(Partition update) {
+        return update.metadata().getKeyValidator().getString(update.partitionKey().getKey());
+    }
+
+    /**
+     * Unregisters the MBean.
+     */
+    public void release() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to unregister tracer MBean", e);
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            // Replace tracer of a previous trigger instance, its buffer is no longer filled.
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            logger.warn("Failed to register tracer MBean", e);
+        }
+    }
+}
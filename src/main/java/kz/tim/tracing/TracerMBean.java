@@ -0,0 +1,35 @@
+package kz.tim.tracing;
+
+/**
+ * JMX view of the latest traced partition updates, see {@link Tracer}.
+ *
+ * @author Timur Tibeyev.
+ */
+public interface TracerMBean {
+
+    /**
+     * Returns the latest traces, oldest first, one line per partition update.
+     *
+     * @return traces.
+     */
+    String[] dump();
+
+    /**
+     * Discards kept traces.
+     */
+    void clear();
+
+    /**
+     * Returns number of partition updates traced since startup.
+     *
+     * @return traced updates.
+     */
+    long getTracedUpdates();
+
+    /**
+     * Returns number of the latest traces kept.
+     *
+     * @return buffer size.
+     */
+    int getBufferSize();
+}